@@ -1,9 +1,127 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+import containers.*;
+import game.AnsiTerminalListener;
+import game.BatchRunner;
 import game.Game;
+import game.MapFile;
+import game.MapGenerator;
+import game.MapTopology;
+import players.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if(args.length > 0 && args[0].equals("batch")){
+            runBatch(args);
+            return;
+        }
+        if(args.length > 0 && args[0].equals("map")){
+            writeMap(args);
+            return;
+        }
         Game game = new Game();
+        if(args.length > 0 && args[0].equals("ansi")){
+            // Only redraws what changes, for terminals on slow connections
+            game.setListener(new AnsiTerminalListener());
+        }
         game.startGame();
 
     }
-}
\ No newline at end of file
+
+    /*
+     *  Plays a batch of games between the search AI and the Monte Carlo AI, without the console
+     *  Arguments: batch [games] [threads] [turn limit] [search depth] [playouts per decision] [seed] [lands or map file] [search time budget ms]
+     *  Without a number of lands, the games are played on the premade board, otherwise on random maps of that size,
+     *  or on the map in the file, see writeMap
+     *  With a time budget, the search goes as deep as it can within it, up to the search depth
+     *  With 0 playouts, the Monte Carlo AI plays out as many as it can within the time budget instead, which must then be given
+     */
+    private static void runBatch(String[] args) throws IOException {
+        int games = (args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+        int threads = (args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+        int maxTurns = (args.length > 3 ? Integer.parseInt(args[3]) : 200);
+        int depth = (args.length > 4 ? Integer.parseInt(args[4]) : 2);
+        int playouts = (args.length > 5 ? Integer.parseInt(args[5]) : 200);
+        long seed = (args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime());
+        int lands = 0;
+        MapTopology map = null;
+        if(args.length > 7 && args[7].matches("\\d+")){
+            lands = Integer.parseInt(args[7]);
+        } else if(args.length > 7){
+            map = MapFile.load(Paths.get(args[7]));
+        }
+        long timeBudget = (args.length > 8 ? Long.parseLong(args[8]) : 0);
+        if(depth < 1){
+            throw new IllegalArgumentException("The search depth must be at least 1");
+        }
+        if(playouts == 0 && timeBudget == 0){
+            throw new IllegalArgumentException("With 0 playouts per decision, a search time budget must be given as well");
+        }
+        long monteCarloBudget = (playouts > 0 ? 0 : timeBudget);
+        // The times of every search decision, gathered from the AIs of all the games
+        List<LatencyStatistics> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        // All the search AIs of the batch share one table, as the games are all played on the same map
+        // On random maps, every game has a map of its own, and a table shared between maps could mix up their positions,
+        // so each thread keeps a table of its own instead, and empties it before every game it plays
+        TranspositionTable table = (lands == 0 ? new TranspositionTable(64) : null);
+        ThreadLocal<TranspositionTable> threadTables = ThreadLocal.withInitial(() -> new TranspositionTable(16));
+        BatchRunner runner = new BatchRunner(gameIndex -> {
+            ArrayList<Player> players = new ArrayList<>();
+            TranspositionTable gameTable = table;
+            if(gameTable == null){
+                gameTable = threadTables.get();
+                gameTable.clear();
+            }
+            CompAggressive search = new CompAggressive(1, depth, gameTable, timeBudget);
+            latencies.add(search.getLatencies());
+            players.add(search);
+            // One thread per AI, as the batch already keeps every core busy
+            players.add(new MonteCarloAI(2, 1, monteCarloBudget, playouts, seed + gameIndex));
+            return players;
+        }, 2, threads, maxTurns);
+        runner.setSeed(seed);
+        runner.setMapSize(lands);
+        if(map != null){
+            runner.setMap(map);
+        }
+
+        System.out.println("Playing " + games + " games on " + threads + " threads, player 1 is CompAggressive at depth " + depth
+            + " and player 2 is MonteCarloAI with " + (playouts > 0 ? playouts + " playouts" : timeBudget + " ms") + " per decision. Seed: " + seed
+            + (lands == 0 ? "" : ", on random maps of " + lands + " lands")
+            + (map == null ? "" : ", on the map " + args[7] + " of " + map.getLandCount() + " lands")
+            + (timeBudget == 0 ? "" : ", searching at most " + timeBudget + " ms per decision"));
+        BatchResult result = runner.run(games);
+        System.out.println(result);
+        LatencyStatistics searchLatencies = new LatencyStatistics();
+        for (LatencyStatistics gameLatencies : latencies) {
+            searchLatencies.add(gameLatencies);
+        }
+        System.out.println("CompAggressive: " + searchLatencies);
+        if(table != null){
+            System.out.println("Transposition table: " + table);
+        }
+    }
+
+    /*
+     *  Generates a random map and writes it to a file, so batches can load it instead of generating it
+     *  Arguments: map [lands] [seed] [file]
+     */
+    private static void writeMap(String[] args) throws IOException {
+        int lands = (args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+        long seed = (args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime());
+        Path path = Paths.get(args.length > 3 ? args[3] : "map-" + lands + ".rmap");
+
+        long start = System.nanoTime();
+        MapTopology map = MapGenerator.generateMap(seed, lands);
+        long generated = System.nanoTime();
+        MapFile.write(map, path);
+        long written = System.nanoTime();
+        MapFile.load(path);
+        long loaded = System.nanoTime();
+        System.out.println(String.format("Map of %d lands with seed %d written to %s (%d bytes). Generated in %.1f ms, written in %.1f ms, loaded in %.1f ms",
+            lands, seed, path, Files.size(path), (generated - start) / 1e6, (written - generated) / 1e6, (loaded - written) / 1e6));
+    }
+}
@@ -0,0 +1,91 @@
+package containers;
+
+/*
+ *  Container class for the summed up results of a batch of games, played by the same lineup of players
+ *  Wins are counted by the position of the player in the lineup, not by the seat it had in the game,
+ *  so a batch where the players swap seats still says which player is the stronger one.
+ *  One instance is filled by one thread, and the instances of all threads are added together at the end
+ */
+public class BatchResult {
+
+    public long games;
+    public long draws;          // games that reached the turn limit
+    public long[] wins;         // wins for each position in the lineup
+    public long firstSeatWins;  // wins by whoever had the first turn, to see how much going first is worth
+    public long totalTurns;
+    public int shortestGame = Integer.MAX_VALUE;
+    public int longestGame;
+    public long elapsedNanos;   // wall time of the whole batch, not summed over threads
+
+    public BatchResult(int playerCount){
+        this.wins = new long[playerCount];
+    }
+
+    /*
+     *  Counts one finished game
+     *  @param winner - the position in the lineup of the winner, or -1 for a draw
+     *  @param firstSeatWon - whether the winner was the one to take the first turn
+     */
+    public void addGame(int winner, boolean firstSeatWon, int turns){
+        games++;
+        if(winner < 0){
+            draws++;
+        } else {
+            wins[winner]++;
+            if(firstSeatWon){
+                firstSeatWins++;
+            }
+        }
+        totalTurns += turns;
+        shortestGame = Math.min(shortestGame, turns);
+        longestGame = Math.max(longestGame, turns);
+    }
+
+    public void add(BatchResult other){
+        games += other.games;
+        draws += other.draws;
+        for (int i = 0; i < wins.length; i++) {
+            wins[i] += other.wins[i];
+        }
+        firstSeatWins += other.firstSeatWins;
+        totalTurns += other.totalTurns;
+        shortestGame = Math.min(shortestGame, other.shortestGame);
+        longestGame = Math.max(longestGame, other.longestGame);
+    }
+
+    public double getWinRate(int player){
+        return (games == 0 ? 0 : (double) wins[player] / games);
+    }
+
+    public double getDrawRate(){
+        return (games == 0 ? 0 : (double) draws / games);
+    }
+
+    public double getAverageTurns(){
+        return (games == 0 ? 0 : (double) totalTurns / games);
+    }
+
+    public double getTurnsPerSecond(){
+        return (elapsedNanos == 0 ? 0 : totalTurns * 1e9 / elapsedNanos);
+    }
+
+    public double getGamesPerSecond(){
+        return (elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d games in %.2f s, %.1f games/s, %.0f turns/s%n",
+            games, elapsedNanos / 1e9, getGamesPerSecond(), getTurnsPerSecond()));
+        for (int i = 0; i < wins.length; i++) {
+            builder.append(String.format("Player %d won %d games (%.1f%%)%n", i+1, wins[i], 100 * getWinRate(i)));
+        }
+        long decided = games - draws;
+        builder.append(String.format("Draws: %d (%.1f%%), first seat won %.1f%% of decided games%n",
+            draws, 100 * getDrawRate(), (decided == 0 ? 0.0 : 100.0 * firstSeatWins / decided)));
+        builder.append(String.format("Game length: %.1f turns on average, shortest %d, longest %d",
+            getAverageTurns(), (games == 0 ? 0 : shortestGame), longestGame));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,243 @@
+package containers;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lookup of how a whole battle goes, when an army of N troops attacks a land with M troops,
+ * and keeps rolling until either the attackers or the defenders are all gone.
+ * ProbTable only knows a single roll, so without this an AI has to expand every roll of the battle as a chance node.
+ *
+ * The attacking army is the troops that can be lost, so a land with 5 troops attacks with an army of 4,
+ * as one troop always stays home. Every roll uses as many dice as the rules of the ProbTable allow, fx up to 3 for the army and 2 for the defender.
+ *
+ * The battle is a Markov chain over (attackers left, defenders left), where every roll moves it to a state with fewer troops.
+ * Two kinds of answers are kept:
+ *  - The win probability and the expected troops left on both sides, for every N and M up to the cap.
+ *    These are worked out backwards from the end states when the table is made, and are O(1) lookups after that.
+ *  - The exact distribution of how the battle ends, for a single N and M.
+ *    These are worked out forwards from the start state the first time they are asked for, and kept.
+ *
+ * The table can be shared by any number of threads. The summaries never change once made,
+ * and two threads asking for the same distribution at once at worst both work it out, and agree on which one to keep.
+ */
+public class BattleTable {
+
+    private final int maxTroops;
+    private final int stride;
+    private final int maxAttackerDice;
+    private final int maxDefenderDice;
+
+    // The outcomes of a single roll, for every pair of dice counts
+    private final int[][][] rollAttackerLosses;
+    private final int[][][] rollDefenderLosses;
+    private final double[][][] rollProbabilities;
+
+    // Indexed by attackers * stride + defenders
+    private final double[] winProbability;
+    private final double[] expectedAttackersLeft;
+    private final double[] expectedDefendersLeft;
+
+    private final AtomicReferenceArray<double[]> distributions;
+
+    /*
+     *  Makes the table for the normal rules
+     */
+    public BattleTable(int maxTroops){
+        this(ProbTable.standard(), maxTroops);
+    }
+
+    /**
+     * Makes the table for armies and defenders of up to the given number of troops.
+     * The summaries take three doubles for every pair, so a cap of 1000 takes about 24 MB.
+     * @param rules - the outcomes of a single roll
+     * @param maxTroops - the largest army and the largest defending troop count that can be looked up
+     */
+    public BattleTable(ProbTable rules, int maxTroops){
+        if(maxTroops < 1){
+            throw new IllegalArgumentException("A battle table needs room for at least one troop on each side");
+        }
+        this.maxTroops = maxTroops;
+        this.stride = maxTroops + 1;
+        this.maxAttackerDice = rules.getMaxAttackerDice();
+        this.maxDefenderDice = rules.getMaxDefenderDice();
+
+        rollAttackerLosses = new int[maxAttackerDice+1][maxDefenderDice+1][];
+        rollDefenderLosses = new int[maxAttackerDice+1][maxDefenderDice+1][];
+        rollProbabilities = new double[maxAttackerDice+1][maxDefenderDice+1][];
+        for (int attackerDice = 1; attackerDice <= maxAttackerDice; attackerDice++) {
+            for (int defenderDice = 1; defenderDice <= maxDefenderDice; defenderDice++) {
+                Outcome[] outcomes = rules.outcomes(attackerDice, defenderDice);
+                rollAttackerLosses[attackerDice][defenderDice] = new int[outcomes.length];
+                rollDefenderLosses[attackerDice][defenderDice] = new int[outcomes.length];
+                rollProbabilities[attackerDice][defenderDice] = new double[outcomes.length];
+                for (int i = 0; i < outcomes.length; i++) {
+                    rollAttackerLosses[attackerDice][defenderDice][i] = outcomes[i].attackersDying;
+                    rollDefenderLosses[attackerDice][defenderDice][i] = outcomes[i].defendersDying;
+                    rollProbabilities[attackerDice][defenderDice][i] = outcomes[i].probability;
+                }
+            }
+        }
+
+        int size = stride * stride;
+        winProbability = new double[size];
+        expectedAttackersLeft = new double[size];
+        expectedDefendersLeft = new double[size];
+        // The end states: one side has nothing left
+        for (int troops = 1; troops <= maxTroops; troops++) {
+            winProbability[troops * stride] = 1;
+            expectedAttackersLeft[troops * stride] = troops;
+            expectedDefendersLeft[troops] = troops;
+        }
+        // Every roll takes away troops, so a state only depends on states with fewer attackers, or as many attackers and fewer defenders
+        for (int attackers = 1; attackers <= maxTroops; attackers++) {
+            for (int defenders = 1; defenders <= maxTroops; defenders++) {
+                int attackerDice = Math.min(maxAttackerDice, attackers);
+                int defenderDice = Math.min(maxDefenderDice, defenders);
+                int[] attackerLosses = rollAttackerLosses[attackerDice][defenderDice];
+                int[] defenderLosses = rollDefenderLosses[attackerDice][defenderDice];
+                double[] probabilities = rollProbabilities[attackerDice][defenderDice];
+                double win = 0;
+                double attackersLeft = 0;
+                double defendersLeft = 0;
+                for (int i = 0; i < probabilities.length; i++) {
+                    int next = (attackers - attackerLosses[i]) * stride + (defenders - defenderLosses[i]);
+                    win += probabilities[i] * winProbability[next];
+                    attackersLeft += probabilities[i] * expectedAttackersLeft[next];
+                    defendersLeft += probabilities[i] * expectedDefendersLeft[next];
+                }
+                int index = attackers * stride + defenders;
+                winProbability[index] = win;
+                expectedAttackersLeft[index] = attackersLeft;
+                expectedDefendersLeft[index] = defendersLeft;
+            }
+        }
+
+        distributions = new AtomicReferenceArray<>(size);
+    }
+
+    /*
+     *  The table shared by the AIs, for up to 256 troops on either side
+     */
+    public static BattleTable standard(){
+        return Standard.TABLE;
+    }
+
+    // Made the first time standard is called. The class loader makes sure this happens once, even with many threads
+    private static final class Standard {
+        static final BattleTable TABLE = new BattleTable(256);
+    }
+
+    public int getMaxTroops(){
+        return maxTroops;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Summaries, O(1)
+
+
+    /*
+     *  The probability that the army takes the land, meaning the defenders run out before the attackers do
+     */
+    public double getWinProbability(int attackers, int defenders){
+        return winProbability[index(attackers, defenders)];
+    }
+
+    public double getExpectedAttackersLeft(int attackers, int defenders){
+        return expectedAttackersLeft[index(attackers, defenders)];
+    }
+
+    public double getExpectedDefendersLeft(int attackers, int defenders){
+        return expectedDefendersLeft[index(attackers, defenders)];
+    }
+
+    public double getExpectedAttackerLosses(int attackers, int defenders){
+        return attackers - getExpectedAttackersLeft(attackers, defenders);
+    }
+
+    public double getExpectedDefenderLosses(int attackers, int defenders){
+        return defenders - getExpectedDefendersLeft(attackers, defenders);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Exact distributions
+
+
+    /**
+     * How the battle of the given army against the given defenders ends.
+     * The array has attackers + defenders entries:
+     *  - index k-1, for k from 1 to attackers: the probability that the army wins with k troops left
+     *  - index attackers + j-1, for j from 1 to defenders: the probability that the defenders hold with j troops left
+     * The array is shared with every other caller, and must not be changed.
+     */
+    public double[] getDistribution(int attackers, int defenders){
+        int index = index(attackers, defenders);
+        double[] distribution = distributions.get(index);
+        if(distribution == null){
+            distribution = computeDistribution(attackers, defenders);
+            if(!distributions.compareAndSet(index, null, distribution)){
+                // Another thread got there first. Use theirs, so all callers see the same array
+                distribution = distributions.get(index);
+            }
+        }
+        return distribution;
+    }
+
+    /*
+     *  The probability that the army wins with exactly the given number of troops left
+     */
+    public double getProbabilityAttackersLeft(int attackers, int defenders, int left){
+        if(left < 1 || left > attackers){
+            return 0;
+        }
+        return getDistribution(attackers, defenders)[left-1];
+    }
+
+    /*
+     *  The probability that the defenders hold with exactly the given number of troops left
+     */
+    public double getProbabilityDefendersLeft(int attackers, int defenders, int left){
+        if(left < 1 || left > defenders){
+            return 0;
+        }
+        return getDistribution(attackers, defenders)[attackers + left-1];
+    }
+
+    private double[] computeDistribution(int attackers, int defenders){
+        int width = defenders + 1;
+        double[] mass = new double[(attackers + 1) * width];
+        mass[attackers * width + defenders] = 1;
+        // Push the probability of every state on to the states its roll can lead to, most troops first,
+        // so every state has all of its probability before it is pushed on
+        for (int a = attackers; a >= 1; a--) {
+            for (int d = defenders; d >= 1; d--) {
+                double here = mass[a * width + d];
+                if(here == 0){
+                    continue;
+                }
+                int attackerDice = Math.min(maxAttackerDice, a);
+                int defenderDice = Math.min(maxDefenderDice, d);
+                int[] attackerLosses = rollAttackerLosses[attackerDice][defenderDice];
+                int[] defenderLosses = rollDefenderLosses[attackerDice][defenderDice];
+                double[] probabilities = rollProbabilities[attackerDice][defenderDice];
+                for (int i = 0; i < probabilities.length; i++) {
+                    mass[(a - attackerLosses[i]) * width + (d - defenderLosses[i])] += here * probabilities[i];
+                }
+            }
+        }
+        double[] distribution = new double[attackers + defenders];
+        for (int a = 1; a <= attackers; a++) {
+            distribution[a-1] = mass[a * width];
+        }
+        for (int d = 1; d <= defenders; d++) {
+            distribution[attackers + d-1] = mass[d];
+        }
+        return distribution;
+    }
+
+    private int index(int attackers, int defenders){
+        if(attackers < 0 || attackers > maxTroops || defenders < 0 || defenders > maxTroops){
+            throw new IllegalArgumentException("This table covers battles of up to " + maxTroops + " troops on each side, not "
+                + attackers + " against " + defenders);
+        }
+        return attackers * stride + defenders;
+    }
+}
@@ -0,0 +1,60 @@
+package containers;
+
+import game.*;
+import java.util.*;
+
+/*
+ *  Container class for a chain of attacks, where one army takes a land, moves in, and attacks on from there
+ *  Every land the army takes keeps one troop behind, and the rest move on to the next land of the chain.
+ *  Made by ConquestPlanner, which also fills in how likely the whole chain is to succeed.
+ */
+public class ConquestChain {
+
+    public int from;                    // the land the army starts on
+    public int[] lands;                 // the lands to take, in order. Only the first length of them are part of the chain
+    public int length;
+    public double probability;          // the probability that every land of the chain is taken
+    public double expectedTroopsLeft;   // the troops expected on the last land, if the whole chain is taken
+    public double value;                // what the value function of the planner gave the chain
+
+    public ConquestChain(int from, int[] lands, int length){
+        this.from = from;
+        this.lands = lands;
+        this.length = length;
+    }
+
+    /*
+     *  A copy that owns its lands, for keeping a chain while the one it was copied from keeps changing
+     */
+    public ConquestChain copy(){
+        ConquestChain copy = new ConquestChain(from, Arrays.copyOf(lands, length), length);
+        copy.probability = probability;
+        copy.expectedTroopsLeft = expectedTroopsLeft;
+        copy.value = value;
+        return copy;
+    }
+
+    public int getLastLand(){
+        return (length == 0 ? from : lands[length-1]);
+    }
+
+    /*
+     *  The lands of the chain, in order, as lands of the given board
+     */
+    public ArrayList<Land> getLands(Board board){
+        ArrayList<Land> result = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            result.add(board.getLand(lands[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder().append(from);
+        for (int i = 0; i < length; i++) {
+            builder.append(" -> ").append(lands[i]);
+        }
+        return builder.append(String.format(": %.1f%% to take all, %.2f troops left, value %.3f", 100 * probability, expectedTroopsLeft, value)).toString();
+    }
+}
@@ -3,11 +3,33 @@ public class Coordinate {
     // This class is used for board generation
     // It is used to determine whether two lands are neighbours
     // It is also used to draw the board
+    // Two coordinates with the same x and y are equal, so they can be used as keys of a map. This is also why they can not change
+
+    public final int x, y;
 
-    public int x, y;
-    
     public Coordinate(int x, int y){
         this.x = x;
         this.y = y;
     }
+
+    @Override
+    public boolean equals(Object other){
+        if(other == this)
+            return true;
+        if(!(other instanceof Coordinate))
+            return false;
+        Coordinate otherCoordinate = (Coordinate) other;
+        return otherCoordinate.x == this.x && otherCoordinate.y == this.y;
+    }
+
+    @Override
+    public int hashCode(){
+        // Mixes the two, so a grid of coordinates spreads out over the whole table of a HashMap
+        return (x * 0x9E3779B1) ^ (y * 0x85EBCA77);
+    }
+
+    @Override
+    public String toString(){
+        return "(" + x + ", " + y + ")";
+    }
 }
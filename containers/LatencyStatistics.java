@@ -0,0 +1,72 @@
+package containers;
+
+import java.util.*;
+
+/*
+ *  Container class for how long each decision took, to see the slow ones and not only the average
+ *  Every time is kept, so the percentiles are exact. That is 8 bytes a decision, which is nothing next to a game
+ *  One instance belongs to one thread, and the instances of several threads can be added together at the end
+ */
+public class LatencyStatistics {
+
+    private long[] nanos = new long[64];
+    private int count;
+    private boolean sorted = true;
+
+    public void record(long elapsedNanos){
+        if(count == nanos.length){
+            nanos = Arrays.copyOf(nanos, 2 * count);
+        }
+        nanos[count++] = elapsedNanos;
+        sorted = false;
+    }
+
+    public void add(LatencyStatistics other){
+        for (int i = 0; i < other.count; i++) {
+            record(other.nanos[i]);
+        }
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    /*
+     *  The time that the given percent of the decisions took at most, fx 99 for the 99th percentile
+     *  Returns 0 if nothing has been recorded
+     */
+    public long getPercentileNanos(double percent){
+        if(count == 0){
+            return 0;
+        }
+        if(!sorted){
+            Arrays.sort(nanos, 0, count);
+            sorted = true;
+        }
+        // Nearest rank: the smallest time that at least the given share of the decisions are within
+        int rank = (int) Math.ceil(percent / 100 * count);
+        return nanos[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    public long getMaxNanos(){
+        return getPercentileNanos(100);
+    }
+
+    public double getMeanNanos(){
+        if(count == 0){
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += nanos[i];
+        }
+        return sum / count;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%d decisions: mean %.1f ms, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+            count, getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(90) / 1e6,
+            getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+    }
+}
@@ -1,11 +1,15 @@
 package containers;
 
-public class Outcome{
-    public int attackersDying;
-    public int defendersDying;
-    public float probability;
+/*
+ *  One way a single roll of an attack can go, and how likely it is
+ *  Outcomes are made once by ProbTable and shared by everyone, so they can not be changed
+ */
+public final class Outcome{
+    public final int attackersDying;
+    public final int defendersDying;
+    public final double probability;
 
-    public Outcome(int attackersDying, int defendersDying, float probability){
+    public Outcome(int attackersDying, int defendersDying, double probability){
         this.attackersDying = attackersDying;
         this.defendersDying = defendersDying;
         this.probability = probability;
@@ -15,4 +19,9 @@ public class Outcome{
         System.out.print(String.format("%.0f%%", probability*100));
     }
 
+    @Override
+    public String toString(){
+        return String.format("%d A : %d D %.4f", attackersDying, defendersDying, probability);
+    }
+
 }
@@ -1,152 +1,213 @@
 package containers;
-import java.util.*;
-import game.*;
 
-public class ProbTable {
-    // Container class for quick lookup of probabilities for attack outcomes
-    public static ArrayList<ArrayList<ArrayList<Outcome>>> outcomeTable;
-    
+/**
+ * Container class for quick lookup of probabilities for attack outcomes.
+ * For every number of attacker dice and defender dice, it knows how likely each outcome of a single roll is.
+ *
+ * The rules are given when the table is made: how many dice each side may roll at most, and how many sides the dice have.
+ * ProbTable.standard() is the table for the normal rules, 3 attacker dice against 2 defender dice, with six sided dice.
+ * A table never changes once made, so it can be shared by any number of threads.
+ */
+public final class ProbTable {
+
+    public static final int STANDARD_ATTACKER_DICE = 3;
+    public static final int STANDARD_DEFENDER_DICE = 2;
+    public static final int STANDARD_SIDES = 6;
+
     /*
     To calculate all these probabilities, we need the two sets of outcomes.
-    For attackers, we need the probability of rolling fx 3 sixes, if they have one dice
+    For attackers, we need the probability of rolling fx 3 sixes, if they have three dice
     And the same for defenders
 
-    After this, we would need to calculate all the matchups and their outcome.
-    If the attacker rolls 3 sixes, then only in 1 matchup do they lose both troops (defender rolls 2 sixes).
-    In two outcomes do they win 1 and lose 1 (defender rolls 1 six and 1 not-six)
-    But this second one is multiple differing rolls.
-
-    This is done by matching one specific roll, fx attacker rolling 3 sixes, and then grouping defender rolls in 2 boxes for each oppertunity
-    So one box is 2 attacker wins, one is 1 attacker win, and one is 0 attacker wins.
-    In each box, we must now take ALL defender rolls, and sort them in YES and NO scenarios.
-    YES is chosen if this specific roll would result in this outcome, and NO if otherwise.
+    Only the highest dice of each side are ever compared, as many as the side with the fewest dice has.
+    So instead of keeping every roll, every roll is only counted under its highest dice, sorted.
+    Fx with 3 attacker dice against 2 defender dice, the rolls {6,2,6} and {6,6,1} both count as one more {6,6}.
+    This makes a histogram for each side, which is far smaller than the list of all rolls.
 
-    Probabilities are proportional, but we can just sum up this very simple sorting to achive the correct result
+    After this, every pair of bars in the two histograms is one matchup. Its outcome is found by comparing the dice pairwise,
+    and it happens as many times as the product of the two counts. Summing this up for each outcome, and dividing by the
+    number of all possible rolls, gives the probability of the outcome.
     */
 
+    private final int maxAttackerDice;
+    private final int maxDefenderDice;
+    private final int sides;
 
-    /*
-     *  Method for creating a list of outcomes depending on the input
-     *  A call to this will return a list of the outcomes that can happen, along with the probability of this outcome being chosen
-     *  The probability of these outcomes should VERY FUCKING MUCH sum up to 1
-     *  This could also be a table in of itself
+    // Indexed by [attacker dice][defender dice]
+    private final Outcome[][][] outcomes;
+
+    /**
+     * Works out the table for the given rules.
+     * @param maxAttackerDice - the most dice an attacker may roll
+     * @param maxDefenderDice - the most dice a defender may roll
+     * @param sides - the number of sides of the dice
      */
-    public static ArrayList<Outcome> getOutcomes(int attackers, int defenders){
-        if(outcomeTable == null){ // Check if the table is initialized
-            // Initialize the entire table
-            outcomeTable = new ArrayList<>();
-            // The lookup is used as: Select in the outer using defenders, select in the inner using attackers.
-            // Generate all the dice roll sets we need
-            ArrayList<ArrayList<ArrayList<Integer>>> diceRollSets = new ArrayList<>();
-            // The first uses the method that does not take any list, because we do not have one yet
-            diceRollSets.add(makeDiceSet(1)); // Set diceCountRemaining to 1, as we only want a dice count of 1
-            diceRollSets.add(makeDiceSet(1,diceRollSets.get(0))); // The remaining count is still 1, but now we can use the previous list to make this one
-            diceRollSets.add(makeDiceSet(1,diceRollSets.get(1)));
-            // For all combinations of attackers and defenders, use these sets to generate a set of outcomes
-            for (int def = 0; def < 2; def++) {
-                // In each row of the table, initialize it
-                outcomeTable.add(new ArrayList<>());
-                for (int att = 0; att < 3; att++) {
-                    // For each row, selected with the defender count, select the column using attacker count. Now set this index
-                    // Using just .add(), as this can only happen in correct order.
-                    outcomeTable.get(def).add(calcScenario(diceRollSets.get(att), diceRollSets.get(def)));
-                }
-                
+    public ProbTable(int maxAttackerDice, int maxDefenderDice, int sides){
+        if(maxAttackerDice < 1 || maxDefenderDice < 1 || sides < 2){
+            throw new IllegalArgumentException("A battle needs at least one die on each side, with at least two sides");
+        }
+        if(Math.pow(sides, maxAttackerDice + maxDefenderDice) >= Long.MAX_VALUE){
+            throw new IllegalArgumentException("Too many rolls to count for " + maxAttackerDice + " against " + maxDefenderDice + " dice with " + sides + " sides");
+        }
+        this.maxAttackerDice = maxAttackerDice;
+        this.maxDefenderDice = maxDefenderDice;
+        this.sides = sides;
+        this.outcomes = new Outcome[maxAttackerDice+1][maxDefenderDice+1][];
+        for (int attackerDice = 1; attackerDice <= maxAttackerDice; attackerDice++) {
+            for (int defenderDice = 1; defenderDice <= maxDefenderDice; defenderDice++) {
+                outcomes[attackerDice][defenderDice] = calcScenario(attackerDice, defenderDice);
             }
         }
+    }
 
-        return outcomeTable.get(defenders-1).get(attackers-1);
+    /*
+     *  The table for the normal rules
+     */
+    public static ProbTable standard(){
+        return Standard.TABLE;
     }
 
-    private static ArrayList<Outcome> calcScenario(ArrayList<ArrayList<Integer>> attackerRollSet, ArrayList<ArrayList<Integer>> defenderRollSet){
-        ArrayList<Outcome> outcomes = new ArrayList<>();
-        // Make note if we compare once or twice
-        boolean twoRolls = (attackerRollSet.get(0).size() > 1 && defenderRollSet.get(0).size() > 1);
+    // Made the first time standard is called. The class loader makes sure this happens once, even with many threads
+    private static final class Standard {
+        static final ProbTable TABLE = new ProbTable(STANDARD_ATTACKER_DICE, STANDARD_DEFENDER_DICE, STANDARD_SIDES);
+    }
 
-        // Init the list of scores for this method call
-        ArrayList<Integer> scores = new ArrayList<>();
-        for (int i = 0; i < (twoRolls ? 3 : 2); i++) {
-            scores.add(0);
+    /*
+     *  The outcomes of a roll under the normal rules. Short for ProbTable.standard().outcomes(attackers, defenders)
+     */
+    public static Outcome[] getOutcomes(int attackers, int defenders){
+        return standard().outcomes(attackers, defenders);
+    }
+
+    /*
+     *  Method for getting the outcomes that can happen when rolling the given number of dice, along with the probability of each
+     *  The probabilities sum up to 1, and the outcomes are ordered by how many troops the defender loses, fewest first.
+     *  A side can not roll more dice than the rules allow, so asking for more is the same as asking for the most allowed.
+     *  This means the troop count of a land can be given as the defender dice directly.
+     *  The array is shared with every other caller, and must not be changed
+     */
+    public Outcome[] outcomes(int attackerDice, int defenderDice){
+        if(attackerDice < 1 || defenderDice < 1){
+            throw new IllegalArgumentException("Both sides must roll at least one die, not " + attackerDice + " against " + defenderDice);
         }
-        int total = 0;
-        // Now generate all rolls for this dice count for both attacker and defender
-
-        // Using these two lists of rolls, go over all their outcomes
-        for (ArrayList<Integer> attackerRolls : attackerRollSet) { // Get a set of attacker rolls
-            for (ArrayList<Integer> defenderRolls : defenderRollSet) { // Get a set of defender rolls
-                int attacksWon = 0; // Count how many times the attacker won
-                // Sort both lists of rolls, in a descending order
-                Collections.sort(attackerRolls, Collections.reverseOrder()); 
-                Collections.sort(defenderRolls, Collections.reverseOrder());
-                if(attackerRolls.get(0) > defenderRolls.get(0)){ // If the attacker rolled higher, they win one
-                    attacksWon++;
+        return outcomes[Math.min(attackerDice, maxAttackerDice)][Math.min(defenderDice, maxDefenderDice)];
+    }
+
+    public int getMaxAttackerDice(){
+        return maxAttackerDice;
+    }
+
+    public int getMaxDefenderDice(){
+        return maxDefenderDice;
+    }
+
+    public int getSides(){
+        return sides;
+    }
+
+    private Outcome[] calcScenario(int attackerDice, int defenderDice){
+        int comparisons = Math.min(attackerDice, defenderDice);
+        long[] attackerCounts = countHighestDice(attackerDice, comparisons);
+        long[] defenderCounts = countHighestDice(defenderDice, comparisons);
+
+        // scores[i] is the number of matchups where the defender loses i troops
+        long[] scores = new long[comparisons+1];
+        int[] attackerHighest = new int[comparisons];
+        int[] defenderHighest = new int[comparisons];
+        for (int attackerKey = 0; attackerKey < attackerCounts.length; attackerKey++) {
+            if(attackerCounts[attackerKey] == 0){
+                continue;
+            }
+            decode(attackerKey, attackerHighest);
+            for (int defenderKey = 0; defenderKey < defenderCounts.length; defenderKey++) {
+                if(defenderCounts[defenderKey] == 0){
+                    continue;
                 }
-                if(twoRolls){ // If there is two comparisons, compare second highest pair
-                    if(attackerRolls.get(1) > defenderRolls.get(1)){ // If the attacker rolled higher, they win one
+                decode(defenderKey, defenderHighest);
+                int attacksWon = 0;
+                for (int i = 0; i < comparisons; i++) {
+                    if(attackerHighest[i] > defenderHighest[i]){ // The defender wins ties
                         attacksWon++;
                     }
                 }
-                // Add one to the outcome.
-                // Note that attacksWon can only sum to 2 if two comparisons were made, so without that, only index 0 and 1 are in use
-                scores.set(attacksWon, scores.get(attacksWon)+1);
-                total++;
+                scores[attacksWon] += attackerCounts[attackerKey] * defenderCounts[defenderKey];
             }
         }
-        
-        // Now calculate the outcomes
-        // System.out.println("\nFor " + attackerRollSet.get(0).size() + " attackers and " + defenderRollSet.get(0).size() + " defenders:");
-        // System.out.println("Total: " + total + "\n");
-        for (int i = 0; i < scores.size(); i++) {
-            outcomes.add(new Outcome((twoRolls ? 2 : 1)-i,i,(float) scores.get(i)/total));
-            // System.out.println(((twoRolls ? 2 : 1)-i) + " A : " + i + " D");
-            // System.out.println("Score: " + scores.get(i));
-            // System.ou<cat.println("Prob: " + (float) scores.get(i)/total + "\n");
-            // System.out.println(String.format("%.0f%%",(float) scores.get(i)/total*100));
-        }
 
-        return outcomes;
+        double total = Math.pow(sides, attackerDice + defenderDice);
+        Outcome[] result = new Outcome[comparisons+1];
+        for (int i = 0; i <= comparisons; i++) {
+            result[i] = new Outcome(comparisons-i, i, scores[i] / total);
+        }
+        return result;
     }
 
-
-
     /*
-     *  Recursive call for making dice roll combinations
-     *  Use this method if a list already exists, then specify the desired extra added amount as the diceCountRemaining
-     *  The method is not destructive in any way on the list provided as argument
+     *  Goes over every roll of the given number of dice, like an odometer, and counts each under its highest dice
+     *  The highest dice, sorted from the highest, are the digits of the index into the returned histogram
      */
-    private static ArrayList<ArrayList<Integer>> makeDiceSet(int diceCountRemaining, ArrayList<ArrayList<Integer>> currentList){
-        if(diceCountRemaining == 0){ // Stop the recursion if there are no more dice to add
-            return currentList;
-        } else {
-            // Make an entirely new list
-            ArrayList<ArrayList<Integer>> newList = new ArrayList<>();
-            for (ArrayList<Integer> arrayList : currentList) { // For each list of current dice rolls in the parameter, we want to make 6 new ones
-                for (int i = 1; i < 7; i++) { // Here we make the 6 new ones
-                    ArrayList<Integer> newPerm = (ArrayList<Integer>) arrayList.clone(); // Clone the current version, fx {1,5}
-                    newPerm.add(i); // Now add this index, fx i = 3 would be {1,5,3}
-                    newList.add(newPerm); // Add this to the new list
+    private long[] countHighestDice(int dice, int kept){
+        long[] counts = new long[(int) Math.pow(sides, kept)];
+        int[] roll = new int[dice];     // each die from 0 to sides-1, so the roll of all 0s is the first
+        int[] highest = new int[kept];
+        while(true){
+            // Keep the highest dice by insertion, highest first
+            int found = 0;
+            for (int die : roll) {
+                int position = found;
+                while(position > 0 && highest[position-1] < die){
+                    if(position < kept){
+                        highest[position] = highest[position-1];
+                    }
+                    position--;
                 }
+                if(position < kept){
+                    highest[position] = die;
+                }
+                found = Math.min(found+1, kept);
+            }
+            counts[encode(highest)]++;
+
+            // Turn the odometer one step
+            int digit = 0;
+            while(digit < dice && roll[digit] == sides-1){
+                roll[digit] = 0;
+                digit++;
             }
-            return makeDiceSet(diceCountRemaining-1, newList);
+            if(digit == dice){
+                return counts;
+            }
+            roll[digit]++;
         }
     }
 
-    /*
-     *  Initial usage of dice roll generation
-     *  Use this if no list exists, to generate a list of the desired size.
-     */
-    public static ArrayList<ArrayList<Integer>> makeDiceSet(int diceCountRemaining){
-        ArrayList<ArrayList<Integer>> newList = new ArrayList<>();
-        for (int i = 1; i < 7; i++) { // Here we make the 6 new ones
-            ArrayList<Integer> newPerm = new ArrayList<>();
-            newPerm.add(i);
-            newList.add(newPerm);
+    private int encode(int[] highest){
+        int key = 0;
+        for (int die : highest) {
+            key = key * sides + die;
         }
-        return makeDiceSet(diceCountRemaining-1, newList);
+        return key;
     }
 
+    private void decode(int key, int[] highest){
+        for (int i = highest.length-1; i >= 0; i--) {
+            highest[i] = key % sides;
+            key /= sides;
+        }
+    }
 
-    
-
-
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder();
+        for (int attackerDice = 1; attackerDice <= maxAttackerDice; attackerDice++) {
+            for (int defenderDice = 1; defenderDice <= maxDefenderDice; defenderDice++) {
+                builder.append(attackerDice).append(" against ").append(defenderDice).append(':');
+                for (Outcome outcome : outcomes[attackerDice][defenderDice]) {
+                    builder.append(' ').append(outcome);
+                }
+                builder.append('\n');
+            }
+        }
+        return builder.toString();
+    }
 }
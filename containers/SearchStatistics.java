@@ -0,0 +1,80 @@
+package containers;
+
+/*
+ *  Container class for counting what a search did, and how fast it did it
+ *  One instance belongs to one search on one thread, so the counters are plain fields
+ */
+public class SearchStatistics {
+
+    public long decisionNodes;  // nodes where a player chooses an action
+    public long chanceNodes;    // nodes where the dice decide the outcome of an attack
+    public long leafNodes;      // nodes evaluated without searching further
+    public long cutoffs;        // alpha-beta cutoffs at decision nodes
+    public long chanceCutoffs;  // Star1 cutoffs at chance nodes
+    public long probeCutoffs;   // Star2 cutoffs at chance nodes, found by probing before searching fully
+    public long tableHits;      // nodes answered by the transposition table
+    public long orderedNodes;   // decision nodes whose actions were searched, so the order of the actions mattered
+    public long bestFirst;      // of those, the nodes where the first action searched was the best, which shows how good the move ordering is
+    public long timeouts;       // iterations of a time bounded search that were stopped at the deadline
+    public int depth;           // the depth the search was started with
+
+    private long startNanos;
+    private long elapsedNanos;
+
+    public void start(){
+        startNanos = System.nanoTime();
+    }
+
+    public void stop(){
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /*
+     *  All nodes visited, of any kind
+     */
+    public long getNodes(){
+        return decisionNodes + chanceNodes;
+    }
+
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    public double getNodesPerSecond(){
+        if(elapsedNanos == 0){
+            return 0;
+        }
+        return getNodes() * 1e9 / elapsedNanos;
+    }
+
+    /*
+     *  Adds the counts of another search to these, fx to sum up a whole game of searches
+     */
+    public void add(SearchStatistics other){
+        decisionNodes += other.decisionNodes;
+        chanceNodes += other.chanceNodes;
+        leafNodes += other.leafNodes;
+        cutoffs += other.cutoffs;
+        chanceCutoffs += other.chanceCutoffs;
+        probeCutoffs += other.probeCutoffs;
+        tableHits += other.tableHits;
+        orderedNodes += other.orderedNodes;
+        bestFirst += other.bestFirst;
+        timeouts += other.timeouts;
+        elapsedNanos += other.elapsedNanos;
+    }
+
+    /*
+     *  The share of searched decision nodes where the best action was tried first. The closer to 1, the more the pruning can cut
+     */
+    public double getBestFirstRate(){
+        return (orderedNodes == 0 ? 0 : (double) bestFirst / orderedNodes);
+    }
+
+    @Override
+    public String toString(){
+        return String.format("Depth %d: %d nodes (%d decision, %d chance, %d leaves) in %.2f ms, %.0f nodes/s. Best action first: %.1f%%. Cutoffs: %d alpha-beta, %d Star1, %d Star2. Table hits: %d. Timeouts: %d",
+            depth, getNodes(), decisionNodes, chanceNodes, leafNodes, elapsedNanos / 1e6, getNodesPerSecond(),
+            100 * getBestFirstRate(), cutoffs, chanceCutoffs, probeCutoffs, tableHits, timeouts);
+    }
+}
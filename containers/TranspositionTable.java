@@ -0,0 +1,241 @@
+package containers;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table for caching search results, keyed by the hash of a Board.
+ * Many attack orders and dice outcomes lead to the same position, and this lets a search
+ * reuse what it already found for that position instead of searching it again.
+ *
+ * The table is lock-free, and can be shared by any number of search threads.
+ * Every entry is two longs: the key XOR'ed with the data, and the data itself.
+ * A reader only trusts an entry if the two XOR back to the key it is looking for,
+ * so an entry that is torn by two threads writing at once is simply treated as a miss.
+ *
+ * Entries are grouped in buckets of 4, which is 64 bytes, one cache line.
+ * When a bucket is full, the entry searched to the lowest depth is replaced.
+ *
+ * The data of an entry is packed into a long:
+ *  - bits 0-31: the value, as the bits of a float
+ *  - bits 32-39: the depth the value was searched to
+ *  - bits 40-41: the bound, BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+ *  - bits 42-62: the best move, as NO_MOVE, END_TURN, or the code of the lands of an attack, see moveCode
+ *  - bit 63: always set, so the data of a used entry is never 0
+ *
+ * The best move is kept by its lands, and not by where it was in the list of moves, as the order moves are found in
+ * depends on how the board got to the position, and the same position is reached in many ways.
+ */
+public class TranspositionTable {
+
+    public static final int BOUND_EXACT = 0;
+    public static final int BOUND_LOWER = 1;   // the real value is at least the stored value
+    public static final int BOUND_UPPER = 2;   // the real value is at most the stored value
+    public static final long NO_ENTRY = 0L;
+    public static final int MAX_DEPTH = 255;
+    public static final int NO_MOVE = 0;
+    public static final int END_TURN = 1;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final long USED = 1L << 63;
+    private static final int MOVE_BITS = 21;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+
+    private final long[] table;
+    private final long bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Creates a table using at most the given amount of memory.
+     * The number of buckets is rounded down to a power of two.
+     * @param sizeInMB - the memory to use, in megabytes
+     */
+    public TranspositionTable(int sizeInMB){
+        if(sizeInMB < 1){
+            throw new IllegalArgumentException("A transposition table needs at least 1 MB");
+        }
+        long buckets = ((long) sizeInMB << 20) / (BYTES_PER_ENTRY * BUCKET_SIZE);
+        buckets = Long.highestOneBit(buckets);
+        // A Java array cannot hold more than about 2^31 longs
+        buckets = Math.min(buckets, 1L << 27);
+        this.table = new long[(int) (buckets * BUCKET_SIZE * 2)];
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up the position with the given hash.
+     * @param key - the hash of the position
+     * @return the packed data of the entry, or NO_ENTRY if the position is not in the table
+     */
+    public long probe(long key){
+        int index = bucketIndex(key);
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            long data = table[index+1];
+            long check = table[index];
+            if(data != NO_ENTRY && (check ^ data) == key){
+                hits.increment();
+                return data;
+            }
+            index += 2;
+        }
+        misses.increment();
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores a search result for the position with the given hash.
+     * An existing entry for the same position is always overwritten, as the newer result is the more useful one.
+     * @param key - the hash of the position
+     * @param value - the value found for the position
+     * @param depth - the depth the position was searched to
+     * @param bound - whether the value is exact, or a lower or upper bound
+     * @param bestMove - the best move found: NO_MOVE, END_TURN, or the moveCode of an attack
+     */
+    public void store(long key, float value, int depth, int bound, int bestMove){
+        long data = pack(value, depth, bound, bestMove);
+        int index = bucketIndex(key);
+        int replaceIndex = -1;
+        int replaceDepth = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            long oldData = table[index+1];
+            long oldCheck = table[index];
+            if(oldData == NO_ENTRY || (oldCheck ^ oldData) == key){
+                // An empty entry, or this same position. Either way, no other position is pushed out
+                write(index, key, data);
+                return;
+            }
+            int oldDepth = depth(oldData);
+            if(oldDepth < replaceDepth){
+                replaceDepth = oldDepth;
+                replaceIndex = index;
+            }
+            index += 2;
+        }
+        // The bucket is full of other positions, so the shallowest one makes room
+        collisions.increment();
+        write(replaceIndex, key, data);
+    }
+
+    private void write(int index, long key, long data){
+        // Plain stores, so another thread may see them in either order, or one without the other
+        // A reader only trusts an entry whose check word matches its data for the key, so a half-seen write is a miss
+        table[index+1] = data;
+        table[index] = key ^ data;
+        stores.increment();
+    }
+
+    private int bucketIndex(long key){
+        // The low bits of a Zobrist hash are as random as the high bits, so they can pick the bucket directly
+        return (int) (key & bucketMask) * BUCKET_SIZE * 2;
+    }
+
+    /*
+     *  Empties the table. Must not be called while searches are running on it
+     */
+    public void clear(){
+        Arrays.fill(table, 0L);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+        stores.reset();
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Packing of entries
+
+
+    public static long pack(float value, int depth, int bound, int bestMove){
+        if(depth < 0 || depth > MAX_DEPTH){
+            throw new IllegalArgumentException("Depth must be between 0 and " + MAX_DEPTH);
+        }
+        long moveField = bestMove & MOVE_MASK;
+        return USED
+            | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL)
+            | ((long) depth << 32)
+            | ((long) (bound & 3) << 40)
+            | (moveField << 42);
+    }
+
+    public static float value(long data){
+        return Float.intBitsToFloat((int) data);
+    }
+
+    public static int depth(long data){
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int) ((data >>> 40) & 3);
+    }
+
+    /*
+     *  Returns the best move of the entry: NO_MOVE, END_TURN, or the moveCode of an attack
+     */
+    public static int bestMove(long data){
+        return (int) ((data >>> 42) & MOVE_MASK);
+    }
+
+    /*
+     *  The code an attack from one land to another is stored by. It is a hash of the two lands, which never equals NO_MOVE or END_TURN
+     *  Two attacks of one position rarely share a code, and if they do, the wrong one is only tried first, which is still a legal move
+     */
+    public static int moveCode(int from, int to){
+        long lands = (from & 0xFFFFFFFFL) | ((long) to << 32);
+        int code = (int) ((lands * 0x9E3779B97F4A7C15L) >>> (64 - MOVE_BITS));
+        return (code <= END_TURN ? code + 2 : code);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Statistics, for sizing the table
+
+
+    public long getHits(){
+        return hits.sum();
+    }
+
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /*
+     *  The number of stores that had to push out another position, because its bucket was full
+     */
+    public long getCollisions(){
+        return collisions.sum();
+    }
+
+    public long getStores(){
+        return stores.sum();
+    }
+
+    public long getCapacity(){
+        return table.length / 2;
+    }
+
+    /*
+     *  Estimates how full the table is, from the first few thousand entries
+     *  A table that is nearly full with many collisions is too small for the searches done on it
+     */
+    public double getFillRate(){
+        int sample = Math.min(table.length / 2, 4096);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if(table[i*2+1] != NO_ENTRY){
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+
+    @Override
+    public String toString(){
+        long probes = getHits() + getMisses();
+        return String.format("Entries: %d, hits: %d, misses: %d, hit rate: %.1f%%, stores: %d, collisions: %d, filled: %.1f%%",
+            getCapacity(), getHits(), getMisses(), (probes == 0 ? 0.0 : 100.0 * getHits() / probes),
+            getStores(), getCollisions(), 100.0 * getFillRate());
+    }
+}
@@ -0,0 +1,274 @@
+package game;
+import java.io.PrintStream;
+
+import containers.*;
+import players.*;
+
+/**
+ * Shows a game in a terminal that understands ANSI escape codes, by drawing the board once and then only the cells that change.
+ * The board is drawn with owners and troops at the top of the screen, with two status lines below it.
+ * After every reinforcement, battle and movement, only the cells of the lands it changed are written again,
+ * each behind a move of the cursor, so a turn sends a few hundred bytes instead of the whole board and all of its text.
+ * This keeps a game playable over a slow connection.
+ *
+ * Everything below the status lines is set as the scrolling region of the terminal, so the questions a Human is asked
+ * scroll there without moving the board. The cursor is saved before every update and put back after it.
+ *
+ * The board is drawn whole again when a new board is seen, or after redraw is called, fx after the viewport of the renderer is set.
+ */
+public class AnsiTerminalListener implements GameEventListener {
+
+    private static final String CSI = "\u001B[";
+    private static final String SAVE_CURSOR = "\u001B7";
+    private static final String RESTORE_CURSOR = "\u001B8";
+
+    private final PrintStream out;
+    private final BoardRenderer renderer = new BoardRenderer(true, true);
+    private final StringBuilder pending = new StringBuilder();
+    private long bytesWritten;
+
+    private Board board;        // the board on the screen, or null if it must be drawn whole
+    private char[] frame;       // the cells on the screen, row by row
+    private int frameWidth;
+    private int frameHeight;
+    // Where the cursor is after the last cell written, so cells next to each other need no move in between
+    private int cursorRow = -1;
+    private int cursorColumn = -1;
+
+    private int turn;
+    private String lastRoll;
+
+    public AnsiTerminalListener(){
+        this(System.out);
+    }
+
+    public AnsiTerminalListener(PrintStream out){
+        this.out = out;
+    }
+
+    /*
+     *  The renderer the board is drawn with, fx to set a viewport on a huge map. Call redraw after changing it
+     */
+    public BoardRenderer getRenderer(){
+        return renderer;
+    }
+
+    /*
+     *  Draws the board whole on the next update, fx if something else has written over it
+     */
+    public void redraw(){
+        board = null;
+    }
+
+    /*
+     *  The number of characters sent to the terminal so far, escape codes included
+     */
+    public long getBytesWritten(){
+        return bytesWritten;
+    }
+
+    @Override
+    public void turnStarted(Board board, int playerNumber){
+        if(board != this.board){
+            drawAll(board);
+        }
+        turn++;
+        setStatus(0, "Turn " + turn + ": player " + playerNumber + " reinforces");
+        setStatus(1, "");
+        flush();
+    }
+
+    @Override
+    public void reinforcementPlaced(Board board, Player player, Land land, int count){
+        if(board != this.board){
+            drawAll(board);
+        }
+        updateLand(land.landID);
+        setStatus(1, "Placed " + count + " troops in " + land.getName());
+        flush();
+    }
+
+    @Override
+    public void reinforcementRejected(Board board, Player player, Reinforcement reinforcement){
+        setStatus(1, "That reinforcement is not allowed. Try again");
+        flush();
+    }
+
+    @Override
+    public void actionPhaseStarted(Board board, Player player){
+        setStatus(0, "Turn " + turn + ": player " + (board.getPlayerIndex(player) + 1) + " attacks and moves");
+        flush();
+    }
+
+    @Override
+    public void diceRolled(Move attack, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+        StringBuilder roll = new StringBuilder(attack.from.getName()).append(" attacks ").append(attack.to.getName()).append(':');
+        for (int i = 0; i < attackerDice; i++) {
+            roll.append(' ').append(attackerRolls[i]);
+        }
+        roll.append(" against");
+        for (int i = 0; i < defenderDice; i++) {
+            roll.append(' ').append(defenderRolls[i]);
+        }
+        lastRoll = roll.toString();
+    }
+
+    @Override
+    public void battleResolved(Move attack, int attackerLosses, int defenderLosses){
+        if(board != null){
+            updateLand(attack.from.landID);
+            updateLand(attack.to.landID);
+        }
+        setStatus(1, lastRoll + ". The attacker lost " + attackerLosses + ", the defender " + defenderLosses);
+        flush();
+    }
+
+    @Override
+    public void landCaptured(Move attack){
+        setStatus(1, lastRoll + ". " + attack.to.getName() + " was taken!");
+        flush();
+    }
+
+    @Override
+    public void attackConcluded(Move attack){
+    }
+
+    @Override
+    public void movementCarriedOut(Move movement){
+        if(board != null){
+            updateLand(movement.from.landID);
+            updateLand(movement.to.landID);
+        }
+        setStatus(1, "Moved " + movement.count + " troops from " + movement.from.getName() + " to " + movement.to.getName());
+        flush();
+    }
+
+    @Override
+    public void moveRejected(Board board, Move move){
+        setStatus(1, "That move is not allowed. Try again");
+        flush();
+    }
+
+    @Override
+    public void turnEnded(Board board, int playerNumber){
+    }
+
+    @Override
+    public void gameEnded(Board board, Player winner, int turns){
+        if(board != this.board){
+            drawAll(board);
+        }
+        if(winner == null){
+            setStatus(0, "The game is a draw after " + turns + " turns");
+        } else {
+            setStatus(0, "Player " + (board.getPlayerIndex(winner) + 1) + " won after " + turns + " turns");
+        }
+        setStatus(1, "");
+        flush();
+        // Give the whole screen back, with the cursor below the status lines
+        out.print(CSI + "r" + CSI + (frameHeight + 4) + ";1H");
+        out.flush();
+        this.board = null;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Drawing
+
+
+    /*
+     *  Clears the screen and draws the board whole, then makes everything below the status lines scroll on its own
+     */
+    private void drawAll(Board board){
+        CharSequence text = renderer.render(board);
+        frameWidth = renderer.getFrameMaxX() - renderer.getFrameMinX() + 1;
+        frameHeight = renderer.getFrameMaxY() - renderer.getFrameMinY() + 1;
+        frame = new char[frameWidth * frameHeight];
+        // The text starts with a line break, and has one after every row
+        for (int row = 0; row < frameHeight; row++) {
+            int start = 1 + row * (frameWidth + 1);
+            for (int column = 0; column < frameWidth; column++) {
+                frame[row * frameWidth + column] = text.charAt(start + column);
+            }
+        }
+        StringBuilder all = new StringBuilder();
+        all.append(CSI).append("r").append(CSI).append("2J").append(CSI).append("H");
+        all.append(text, 1, text.length());
+        // Setting the scrolling region moves the cursor to the top, so it is moved below the status lines after
+        all.append(CSI).append(frameHeight + 4).append('r');
+        all.append(CSI).append(frameHeight + 4).append(";1H");
+        write(all);
+        this.board = board;
+        pending.setLength(0);
+        cursorRow = -1;
+    }
+
+    /*
+     *  Writes the cells of the land that are not on the screen as they are now
+     */
+    private void updateLand(int land){
+        MapTopology topology = board.getTopology();
+        int x = topology.getX(land);
+        int y = topology.getY(land);
+        for (int dy = 1; dy >= -1; dy--) {
+            int cellY = y + dy;
+            if(cellY < renderer.getFrameMinY() || cellY > renderer.getFrameMaxY()){
+                continue;
+            }
+            int row = renderer.getFrameMaxY() - cellY;
+            for (int dx = -1; dx <= 1; dx++) {
+                int cellX = x + dx;
+                if(cellX < renderer.getFrameMinX() || cellX > renderer.getFrameMaxX()){
+                    continue;
+                }
+                int column = cellX - renderer.getFrameMinX();
+                char cell = renderer.getCell(board, land, dx, dy);
+                if(frame[row * frameWidth + column] != cell){
+                    frame[row * frameWidth + column] = cell;
+                    moveCursor(row, column);
+                    pending.append(cell);
+                    cursorColumn++;
+                }
+            }
+        }
+    }
+
+    /*
+     *  Writes the line of text in place of the given status line
+     */
+    private void setStatus(int line, String text){
+        if(board == null){
+            return;
+        }
+        moveCursor(frameHeight + 1 + line, 0);
+        pending.append(text).append(CSI).append('K');
+        cursorRow = -1;
+    }
+
+    private void moveCursor(int row, int column){
+        if(row != cursorRow || column != cursorColumn){
+            // Rows and columns of the terminal count from 1
+            pending.append(CSI).append(row + 1).append(';').append(column + 1).append('H');
+            cursorRow = row;
+            cursorColumn = column;
+        }
+    }
+
+    /*
+     *  Sends what has changed to the terminal, with the cursor put back where it was
+     */
+    private void flush(){
+        if(pending.length() == 0){
+            return;
+        }
+        pending.insert(0, SAVE_CURSOR).append(RESTORE_CURSOR);
+        write(pending);
+        pending.setLength(0);
+        cursorRow = -1;
+    }
+
+    private void write(CharSequence text){
+        out.append(text);
+        out.flush();
+        bytesWritten += text.length();
+    }
+}
@@ -0,0 +1,201 @@
+package game;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import containers.*;
+import players.*;
+
+/*
+ *  Plays many games between AIs at once, without the console, and sums up how they went
+ *  This is for comparing AIs against each other, and for checking that a change to an AI did not make it weaker.
+ *
+ *  Every thread takes the next game to play from a shared counter, so a thread that gets short games simply plays more of them.
+ *  The results are counted per thread, and only added together when all games are done.
+ */
+public class BatchRunner {
+
+    /*
+     *  Makes the players for one game of the batch
+     *  This is called from many threads at once, so it must make new players every time,
+     *  and anything the players share, fx a transposition table, must be safe to use from many threads.
+     *  Each thread calls it right before playing the game, so something kept per thread can be reset here for the new game
+     */
+    public interface PlayerFactory {
+        ArrayList<Player> createPlayers(int gameIndex);
+    }
+
+    /*
+     *  Gets the replay of every game of the batch, fx to keep the ones where something odd happened
+     *  This is called from many threads at once. A game that failed is handed over too, up to where it failed, before the batch fails
+     */
+    public interface ReplayHandler {
+        void gamePlayed(int gameIndex, ArrayList<Player> seats, MapTopology map, ReplayLog replay);
+    }
+
+    private final PlayerFactory factory;
+    private final int playerCount;
+    private final int threads;
+    private final int maxTurns;
+    private boolean swapSeats = true;
+    private int mapSize;        // the lands of the random maps to play on, or 0 for the premade board
+    private MapTopology map;    // the one map every game is played on, or null
+    private long seed = new SplittableRandom().nextLong();
+    private boolean recordReplays = true;
+    private ReplayHandler replayHandler;
+
+    /**
+     * @param factory - makes the lineup of players for each game
+     * @param playerCount - the number of players the factory makes for every game
+     * @param threads - how many games are played at once, fx one per core
+     * @param maxTurns - a game is a draw after this many turns. Must be above 0, as AIs may never finish a game otherwise
+     */
+    public BatchRunner(PlayerFactory factory, int playerCount, int threads, int maxTurns){
+        if(playerCount < 2){
+            throw new IllegalArgumentException("A game needs at least two players");
+        }
+        if(threads < 1){
+            throw new IllegalArgumentException("A batch needs at least one thread");
+        }
+        if(maxTurns < 1){
+            throw new IllegalArgumentException("A batch needs a turn limit, so every game ends");
+        }
+        this.factory = factory;
+        this.playerCount = playerCount;
+        this.threads = threads;
+        this.maxTurns = maxTurns;
+    }
+
+    /*
+     *  Whether every other game reverses the lineup, so no player gets to go first in all games. On by default
+     */
+    public void setSwapSeats(boolean swapSeats){
+        this.swapSeats = swapSeats;
+    }
+
+    /*
+     *  Sets the seed the dice of every game are made from. Game i of two batches with the same seed rolls the same dice,
+     *  so with AIs that depend on neither time nor anything shared between games, a batch can be played again game by game
+     */
+    public void setSeed(long seed){
+        this.seed = seed;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    /*
+     *  Plays every game on a random map of the given number of lands, made from the seed of the batch, see MapGenerator
+     *  With seats swapped, every pair of games is played on the same map, so both lineups get the same starting positions.
+     *  0, the default, plays on the premade board
+     */
+    public void setMapSize(int mapSize){
+        if(mapSize < 0){
+            throw new IllegalArgumentException("A map can not have " + mapSize + " lands");
+        }
+        this.mapSize = mapSize;
+        this.map = null;
+    }
+
+    /*
+     *  Plays every game on the given map, fx one loaded with MapFile, with the lands shared out at random from the seed of the batch
+     *  With seats swapped, every pair of games starts from the same owners. null plays on the premade board
+     */
+    public void setMap(MapTopology map){
+        this.map = map;
+        this.mapSize = 0;
+    }
+
+    /*
+     *  Whether every game writes a ReplayLog. On by default, as a log costs little next to the decisions of the AIs
+     */
+    public void setRecordReplays(boolean recordReplays){
+        this.recordReplays = recordReplays;
+    }
+
+    /*
+     *  Sets who gets the replay of every game, or null to throw them away
+     */
+    public void setReplayHandler(ReplayHandler replayHandler){
+        this.replayHandler = replayHandler;
+    }
+
+    /*
+     *  Plays the given number of games, and returns once all of them are done
+     */
+    public BatchResult run(int games){
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<BatchResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    BatchResult result = new BatchResult(playerCount);
+                    for (int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+                        playGame(game, result);
+                    }
+                    return result;
+                }));
+            }
+            BatchResult total = new BatchResult(playerCount);
+            for (Future<BatchResult> future : futures) {
+                try {
+                    total.add(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("A game of the batch failed", e);
+                }
+            }
+            total.elapsedNanos = System.nanoTime() - start;
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void playGame(int gameIndex, BatchResult result){
+        ArrayList<Player> lineup = factory.createPlayers(gameIndex);
+        if(lineup.size() != result.wins.length){
+            throw new IllegalStateException("Game " + gameIndex + " got " + lineup.size() + " players, but the batch has " + result.wins.length);
+        }
+        ArrayList<Player> seats = new ArrayList<>(lineup);
+        if(swapSeats && gameIndex % 2 == 1){
+            Collections.reverse(seats);
+        }
+        Game game;
+        // The maps and owners are made from the seed turned around, so they do not use the same random numbers as the dice
+        int pair = (swapSeats ? gameIndex / 2 : gameIndex);
+        if(map != null){
+            int[] owners = MapGenerator.generateOwners(~seed + pair, map.getLandCount(), seats.size());
+            game = new Game(seats, new Board(seats, 2, map, owners), maxTurns, NoOpListener.INSTANCE);
+        } else if(mapSize > 0){
+            game = new Game(seats, MapGenerator.generateBoard(~seed + pair, seats, 2, mapSize), maxTurns, NoOpListener.INSTANCE);
+        } else {
+            game = new Game(seats, maxTurns, NoOpListener.INSTANCE);
+        }
+        game.setDice(Dice.forGame(seed, gameIndex));
+        ReplayLog replay = (recordReplays ? new ReplayLog() : null);
+        game.setReplayLog(replay);
+        Player winner;
+        try {
+            winner = game.startGame();
+        } catch (RuntimeException e) {
+            if(replay != null && replayHandler != null){
+                replayHandler.gamePlayed(gameIndex, seats, game.getBoard().getTopology(), replay);
+            }
+            throw new IllegalStateException("Game " + gameIndex + " of the batch failed on turn " + game.getTurnCount(), e);
+        }
+        if(replay != null && replayHandler != null){
+            replayHandler.gamePlayed(gameIndex, seats, game.getBoard().getTopology(), replay);
+        }
+        // Find the winner by reference, as two players of the same kind may well be equal in every other way
+        int winnerIndex = -1;
+        for (int i = 0; i < lineup.size(); i++) {
+            if(lineup.get(i) == winner){
+                winnerIndex = i;
+            }
+        }
+        result.addGame(winnerIndex, winner != null && winner == seats.get(0), game.getTurnCount());
+    }
+}
@@ -0,0 +1,95 @@
+package game;
+
+/*
+ *  Works out the losses of a single roll of an attack
+ *  The highest attacker die is compared to the highest defender die, and the second highest to the second highest,
+ *  if both sides rolled at least two. The defender wins ties. Every lost comparison costs the loser one troop.
+ *
+ *  The dice are sorted with a fixed sorting network on plain ints, so nothing is allocated,
+ *  and the losses of both sides are packed into a single int:
+ *  - bits 0-7: the troops the attacker lost
+ *  - bits 8-15: the troops the defender lost
+ */
+public final class Battle {
+
+    public static final int MAX_ATTACKER_DICE = 3;
+    public static final int MAX_DEFENDER_DICE = 2;
+
+    private Battle(){
+    }
+
+    /*
+     *  Resolves the dice already rolled into the start of the two arrays. The arrays are not changed
+     */
+    public static int resolve(int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+        checkDice(attackerDice, defenderDice);
+        return resolve(attackerRolls[0], (attackerDice > 1 ? attackerRolls[1] : 0), (attackerDice > 2 ? attackerRolls[2] : 0),
+            defenderRolls[0], (defenderDice > 1 ? defenderRolls[1] : 0));
+    }
+
+    /*
+     *  Rolls the dice and resolves them in one go, for simulations that do not care what was rolled
+     */
+    public static int roll(Dice dice, int attackerDice, int defenderDice){
+        checkDice(attackerDice, defenderDice);
+        int a0 = dice.roll();
+        int a1 = (attackerDice > 1 ? dice.roll() : 0);
+        int a2 = (attackerDice > 2 ? dice.roll() : 0);
+        int d0 = dice.roll();
+        int d1 = (defenderDice > 1 ? dice.roll() : 0);
+        return resolve(a0, a1, a2, d0, d1);
+    }
+
+    /*
+     *  Dice that were not rolled are 0, which sorts below every real roll and so never takes part in a comparison
+     */
+    private static int resolve(int a0, int a1, int a2, int d0, int d1){
+        // Sorting network for three, highest first. The lowest die is never compared, so the last step only needs the top two
+        int high = Math.max(a0, a1);
+        int low = Math.min(a0, a1);
+        int second = Math.max(low, a2);
+        int first = Math.max(high, second);
+        second = Math.min(high, second);
+        int defenderFirst = Math.max(d0, d1);
+        int defenderSecond = Math.min(d0, d1);
+
+        int attackerLosses = 0;
+        int defenderLosses = 0;
+        if(first > defenderFirst){
+            defenderLosses++;
+        } else {
+            attackerLosses++;
+        }
+        if(second != 0 && defenderSecond != 0){
+            if(second > defenderSecond){
+                defenderLosses++;
+            } else {
+                attackerLosses++;
+            }
+        }
+        return pack(attackerLosses, defenderLosses);
+    }
+
+    private static void checkDice(int attackerDice, int defenderDice){
+        if(attackerDice < 1 || attackerDice > MAX_ATTACKER_DICE || defenderDice < 1 || defenderDice > MAX_DEFENDER_DICE){
+            throw new IllegalArgumentException("A battle is 1 to " + MAX_ATTACKER_DICE + " attacker dice against 1 to "
+                + MAX_DEFENDER_DICE + " defender dice, not " + attackerDice + " against " + defenderDice);
+        }
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Packing of results
+
+
+    public static int pack(int attackerLosses, int defenderLosses){
+        return attackerLosses | (defenderLosses << 8);
+    }
+
+    public static int attackerLosses(int result){
+        return result & 0xFF;
+    }
+
+    public static int defenderLosses(int result){
+        return (result >>> 8) & 0xFF;
+    }
+}
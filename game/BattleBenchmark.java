@@ -0,0 +1,186 @@
+package game;
+import java.util.*;
+
+/*
+ *  Measures Battle against the way Game used to resolve attacks, with boxed dice in lists and Collections.max
+ *  Run it with: java game.BattleBenchmark [battles] [seed]
+ *  First every possible roll is resolved both ways, and the two must agree, otherwise Battle is broken
+ */
+public class BattleBenchmark {
+
+    private static final int ROUNDS = 5;  // the first rounds warm up the JIT, only the last one is reported
+
+    public static void main(String[] args){
+        int battles = (args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000);
+        long seed = (args.length > 1 ? Long.parseLong(args[1]) : 1);
+
+        int checked = checkAllRolls();
+        System.out.println("All " + checked + " possible rolls resolve the same both ways.");
+
+        // The same dice for both ways, so only the resolving is measured
+        int[] attackerCounts = new int[battles];
+        int[] defenderCounts = new int[battles];
+        int[] rolls = new int[battles * 5];
+        Dice dice = new Dice(seed);
+        for (int i = 0; i < battles; i++) {
+            attackerCounts[i] = dice.roll() % 3 + 1;
+            defenderCounts[i] = dice.roll() % 2 + 1;
+            for (int j = 0; j < 5; j++) {
+                rolls[i*5+j] = dice.roll();
+            }
+        }
+
+        long listNanos = 0;
+        long battleNanos = 0;
+        long oldRollNanos = 0;
+        long newRollNanos = 0;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += resolveAllWithLists(attackerCounts, defenderCounts, rolls);
+            listNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += resolveAllWithBattle(attackerCounts, defenderCounts, rolls);
+            battleNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += rollAndResolveTheOldWay(attackerCounts, defenderCounts);
+            oldRollNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += rollAndResolve(attackerCounts, defenderCounts, new Dice(seed));
+            newRollNanos = System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("Resolving only, %d battles:", battles));
+        report("Lists", listNanos, battles);
+        report("Battle", battleNanos, battles);
+        System.out.println(String.format("Speedup: %.1fx", (double) listNanos / battleNanos));
+        System.out.println(String.format("Rolling and resolving, %d battles:", battles));
+        report("new Random and lists", oldRollNanos, battles);
+        report("Dice and Battle", newRollNanos, battles);
+        System.out.println(String.format("Speedup: %.1fx", (double) oldRollNanos / newRollNanos));
+        // Printed so the JIT can not throw the work away
+        System.out.println("Checksum: " + sink);
+    }
+
+    private static void report(String name, long nanos, int battles){
+        System.out.println(String.format("  %-22s %8.2f ms, %6.1f ns per battle, %6.1f million battles/s",
+            name, nanos / 1e6, (double) nanos / battles, battles * 1e3 / nanos));
+    }
+
+    private static int checkAllRolls(){
+        int checked = 0;
+        int[] attacker = new int[3];
+        int[] defender = new int[2];
+        for (int attackerDice = 1; attackerDice <= Battle.MAX_ATTACKER_DICE; attackerDice++) {
+            for (int defenderDice = 1; defenderDice <= Battle.MAX_DEFENDER_DICE; defenderDice++) {
+                int combinations = (int) Math.pow(Dice.SIDES, attackerDice + defenderDice);
+                for (int combination = 0; combination < combinations; combination++) {
+                    int rest = combination;
+                    for (int i = 0; i < attackerDice; i++) {
+                        attacker[i] = rest % Dice.SIDES + 1;
+                        rest /= Dice.SIDES;
+                    }
+                    for (int i = 0; i < defenderDice; i++) {
+                        defender[i] = rest % Dice.SIDES + 1;
+                        rest /= Dice.SIDES;
+                    }
+                    int expected = resolveWithLists(toList(attacker, attackerDice), toList(defender, defenderDice));
+                    int actual = Battle.resolve(attacker, attackerDice, defender, defenderDice);
+                    if(expected != actual){
+                        throw new IllegalStateException("Battle resolves " + Arrays.toString(Arrays.copyOf(attacker, attackerDice))
+                            + " against " + Arrays.toString(Arrays.copyOf(defender, defenderDice)) + " wrong");
+                    }
+                    checked++;
+                }
+            }
+        }
+        return checked;
+    }
+
+    private static long resolveAllWithLists(int[] attackerCounts, int[] defenderCounts, int[] rolls){
+        long sum = 0;
+        for (int i = 0; i < attackerCounts.length; i++) {
+            ArrayList<Integer> attacker = new ArrayList<>();
+            for (int j = 0; j < attackerCounts[i]; j++) {
+                attacker.add(rolls[i*5+j]);
+            }
+            ArrayList<Integer> defender = new ArrayList<>();
+            for (int j = 0; j < defenderCounts[i]; j++) {
+                defender.add(rolls[i*5+3+j]);
+            }
+            sum += resolveWithLists(attacker, defender);
+        }
+        return sum;
+    }
+
+    private static long resolveAllWithBattle(int[] attackerCounts, int[] defenderCounts, int[] rolls){
+        long sum = 0;
+        int[] attacker = new int[3];
+        int[] defender = new int[2];
+        for (int i = 0; i < attackerCounts.length; i++) {
+            System.arraycopy(rolls, i*5, attacker, 0, 3);
+            System.arraycopy(rolls, i*5+3, defender, 0, 2);
+            sum += Battle.resolve(attacker, attackerCounts[i], defender, defenderCounts[i]);
+        }
+        return sum;
+    }
+
+    private static long rollAndResolveTheOldWay(int[] attackerCounts, int[] defenderCounts){
+        long sum = 0;
+        for (int i = 0; i < attackerCounts.length; i++) {
+            sum += resolveWithLists(rollDiceTheOldWay(attackerCounts[i]), rollDiceTheOldWay(defenderCounts[i]));
+        }
+        return sum;
+    }
+
+    private static long rollAndResolve(int[] attackerCounts, int[] defenderCounts, Dice dice){
+        long sum = 0;
+        for (int i = 0; i < attackerCounts.length; i++) {
+            sum += Battle.roll(dice, attackerCounts[i], defenderCounts[i]);
+        }
+        return sum;
+    }
+
+    private static ArrayList<Integer> toList(int[] rolls, int count){
+        ArrayList<Integer> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(rolls[i]);
+        }
+        return list;
+    }
+
+    /*
+     *  How Board used to roll dice, with a new Random for every roll
+     */
+    private static ArrayList<Integer> rollDiceTheOldWay(int count){
+        Random rand = new Random();
+        ArrayList<Integer> diceRolls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            diceRolls.add(rand.nextInt(6) + 1);
+        }
+        return diceRolls;
+    }
+
+    /*
+     *  How Game used to compare the dice of an attack. The lists are emptied as it goes
+     */
+    private static int resolveWithLists(ArrayList<Integer> attackerRolls, ArrayList<Integer> defenderRolls){
+        int fights = Math.min(attackerRolls.size(), defenderRolls.size());
+        int attacksWon = 0;
+        for (int i = 0; i < fights; i++) {
+            int highestAttacker = Collections.max(attackerRolls);
+            int highestAttackerIndex = attackerRolls.indexOf(highestAttacker);
+            int highestDefender = Collections.max(defenderRolls);
+            int highestDefenderIndex = defenderRolls.indexOf(highestDefender);
+            if(highestAttacker > highestDefender){
+                attacksWon++;
+            }
+            attackerRolls.remove(highestAttackerIndex);
+            defenderRolls.remove(highestDefenderIndex);
+        }
+        return Battle.pack(fights - attacksWon, attacksWon);
+    }
+}
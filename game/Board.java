@@ -6,228 +6,155 @@ import players.*;
 
 public class Board {
     
-    private ArrayList<Land> lands;
+    // The map itself never changes, and is shared between this board and all of its copies
+    private final MapTopology topology;
+    private final Player[] players;
+    // The state of each land, indexed by land id. owner holds the index of the controlling player in players, or -1
+    private int[] owner;
+    private int[] troops;
+    // Land objects are only views into the arrays above. They are made when first asked for, so copies stay cheap
+    private Land[] lands;
+    // Zobrist hash of the owners, troops and player turn. Kept up to date on every change, see Zobrist
+    private long hash;
+    // The connected zones of every player. Made the first time they are needed, and kept up to date from then on, see ZoneIndex
+    // Copies start without them, as searches on copies change controllers all the time, but rarely ask about zones
+    private ZoneIndex zones;
+    // The lands of every player that border a hostile land. Always kept up to date, as the AIs ask for it on every move, see FrontierIndex
+    private FrontierIndex frontiers;
+    // Running totals of each player, kept up to date on every change, so they cost nothing to read
+    private int[] landsOf;
+    private int[] troopsOf;
+    private int allTroops;      // the troops on every land, whoever controls it
+    private int playersLeft;    // the players with any land left. A player with no land is eliminated
     private int playerTurn = 0; // The only call needed is, at the start of a turn to get the next player, and save that value, using the method for it
     private int playerCount;
-    private ArrayList<Coordinate> centersInUse;
     private int landCountForReinforcement; // the number of land required to gain an additional reinforcement
 
     /*
      *  Constructor for a new, premade, board
+     *  The first half of the lands start out owned by the first player, the second half by the second player
      */
     public Board(ArrayList<Player> players, int landCountForReinforcement){
-        this.lands = new ArrayList<>();
+        this(players, landCountForReinforcement, MapTopology.standard(), splitInHalf(MapTopology.standard().getLandCount()));
+    }
+
+    /**
+     * Constructor for a board on any map.
+     * Every land starts with 1 troop.
+     * @param players - the players of the game, in turn order
+     * @param landCountForReinforcement - the number of land required to gain an additional reinforcement
+     * @param topology - the map to play on
+     * @param startOwners - the index in players of the starting controller of each land, or null to set them later
+     */
+    public Board(ArrayList<Player> players, int landCountForReinforcement, MapTopology topology, int[] startOwners){
+        this.topology = topology;
+        this.players = players.toArray(new Player[0]);
         this.playerCount = players.size();
-        this.centersInUse = new ArrayList<>();
+        if(playerCount > UNDO_MAX_PLAYERS){
+            throw new IllegalArgumentException("A board supports at most " + UNDO_MAX_PLAYERS + " players, not " + playerCount);
+        }
         this.landCountForReinforcement = landCountForReinforcement;
-        
-        generateLand(new Coordinate(2, 13), 1-1, players.get(0), "a");
-        generateLand(new Coordinate(5, 13), 2-1, players.get(0), "b");
-        generateLand(new Coordinate(8, 15), 3-1, players.get(0), "c");
-        generateLand(new Coordinate(11, 14), 4-1, players.get(0), "d");
-        generateLand(new Coordinate(8, 12), 5-1, players.get(0), "e");
-        generateLand(new Coordinate(0, 10), 6-1, players.get(0), "f");
-        generateLand(new Coordinate(3, 10), 7-1, players.get(0), "g");
-        generateLand(new Coordinate(0, 7), 8-1, players.get(0), "h");
-
-        generateLand(new Coordinate(3, 7), 9-1, players.get(1), "i");
-        generateLand(new Coordinate(3, 4), 10-1, players.get(1), "j");
-        generateLand(new Coordinate(6, 9), 11-1, players.get(1), "k");
-        generateLand(new Coordinate(9, 9), 12-1, players.get(1), "l");
-        generateLand(new Coordinate(12, 9), 13-1, players.get(1), "m");
-        generateLand(new Coordinate(6, 6), 14-1, players.get(1), "n");
-        generateLand(new Coordinate(10, 6), 15-1, players.get(1), "o");
-        generateLand(new Coordinate(8, 3), 16-1, players.get(1), "p");
-
-        
+        this.owner = (startOwners == null ? new int[topology.getLandCount()] : startOwners.clone());
+        this.troops = new int[topology.getLandCount()];
+        Arrays.fill(troops, 1);
+        this.hash = computeHash();
+        this.frontiers = new FrontierIndex(this);
+        computeTotals();
+    }
 
-        // Commented out block of random land generation
-        // int landsToGenerate = 16;
-        // // First land is always a manual-added (0,0)
-        // Coordinate centerCoordinate = new Coordinate(0,0);
-        // lands.add(new Land("0", 14-landsToGenerate, (landsToGenerate-7 > 0 ? players.get(0) : players.get(1)), centerCoordinate));
-        // centersInUse.add(centerCoordinate);
-        // landsToGenerate--;
-        // Random rand = new Random();
-        // // Now the adding begins
-        // while (landsToGenerate > 0) {
-        //     boolean successGenerate = false;
-        //     while(!successGenerate){
-        //         // Pick a random land already made
-        //         Land randomLand = lands.get(rand.nextInt(lands.size()));
-        //         // Use the method for generating available candidates for centers
-        //         ArrayList<Coordinate> candidates = generatePossibleNeighboursFromCoord(randomLand.coords);
-        //         if(candidates.size() > 0){
-        //             // Pick one at random
-        //             Coordinate randomPicked = candidates.get(rand.nextInt(candidates.size()));
-        //             // Add it to the list of coordinates we have already used
-        //             centersInUse.add(randomPicked);
-        //             // Also generate the actual land, giving it these coordiantes
-        //             Land newlyGenerated = new Land(14-landsToGenerate + "", 14-landsToGenerate, (landsToGenerate-7 > 0 ? players.get(0) : players.get(1)), randomPicked);
-        //             // Generate its neighbours while we have it
-        //             setNeighboursOfLand(newlyGenerated);
-        //             // Add this one after generating its neighbours (important order, do not change, see method setNeighboursOfLand)
-        //             lands.add(newlyGenerated);
-        //             successGenerate = true; // We found and chose a candidate
-        //         } // If there are no candidates, we could not generate any candidates from this coordinate.
-        //     }
-        //     // This land is done, off to the next one
-        //     landsToGenerate--;
-        // }
-    }
-
-    /*
-     * Constructor for an empty board - used to copy the board
-     */
-    private Board(){
-        lands = new ArrayList<>();
-        centersInUse = new ArrayList<>();
-    }
-
-
-    private void generateLand(Coordinate coords, int id, Player startController, String name){
-        //Add it to the list of coordinates we have already used
-        centersInUse.add(coords);
-        // Also generate the actual land, giving it these coordiantes
-        Land newlyGenerated = new Land(name, id, startController, coords);
-        // Generate its neighbours while we have it
-        setNeighboursOfLand(newlyGenerated);
-        // Add this one after generating its neighbours (important order, do not change, see method setNeighboursOfLand)
-        lands.add(newlyGenerated);
-    }
-
-
-    private ArrayList<Coordinate> generatePossibleNeighboursFromCoord(Coordinate coord){
-        ArrayList<Coordinate> candidates = new ArrayList<>();
-        // See if either its center plus 3 or minus 3 in all combinations is in use
-        // This is done by checking that no center lies 2 or less away in any coordinate
-        // The large offset is used 4 times. X = -3, X = +3, Y = -3, Y = +3
-        // The small offset is used 6 times. For both coordinates: -1, 0, +1
-        // The idea here is that a coordinate set is used twice.
-        // So we can use (-3,-1) in one round, but also (-1,-3).
-        for (int large = -3; large < 4; large=large+6) { // This runs twice
-            for (int small = -1; small < 2; small++) { // This runs 3 times
-                // Now check (small, large) and (large, small), and add them
-                Coordinate toCheck = new Coordinate(coord.x+large, coord.y+small);
-                if(isCoordinateAvailable(toCheck)){ // Checking (large, small)
-                    candidates.add(toCheck);
-                }
-                toCheck = new Coordinate(coord.x+small, coord.y+large);
-                if(isCoordinateAvailable(toCheck)){ // Checking (small, large)
-                    candidates.add(toCheck);
-                }
-            }
-        }
-        return candidates;
-    }
-
-    /*
-     *  Checks if a that using this coordinate would cause collision
-     *  Returns true if this coordinate can be used with no conflict
-     */
-    private boolean isCoordinateAvailable(Coordinate toCheck){
-        boolean isAvailable = true;
-        Iterator<Coordinate> coordIte = centersInUse.iterator(); // Make iterator
-        while(coordIte.hasNext() && isAvailable){ // Run while we have not failed, and have more to check
-            Coordinate currentToCheck = coordIte.next();
-            boolean xConflict = false;
-            boolean yConflict = false;
-            // If this has its center in any of the 16 coordinates around the one we are checking, it fails.
-            // What is being tested is 4 things. Does it lie further away by 3 or more on the x-coordinate, plus and minus, and then the same on the y-coordinate.
-            // If the coordinate is not either on the outer side of any of these boundaries, that causes a conflict on that axis
-            
-            // Fx if currentToCheck.x > tocheck.x - 2, that means it lies on the right side of this left-side boundary.
-            // This is only a problem if it does not then lie on the right of the right boundary.
-
-            // Using logic, it can be determined that there needs to be both a conflict in the x and y coordinates.
-            // If it has the same x-coordinate, that can be allowed, if the y-coordinate does not come anywhere near.
-            if(!(currentToCheck.x < toCheck.x-2 || currentToCheck.x > toCheck.x+2)){
-                xConflict = true;
-            }
-            if(!(currentToCheck.y < toCheck.y-2 || currentToCheck.y > toCheck.y+2)){
-                yConflict = true;
-            }
-            if(xConflict && yConflict){
-                // Both coordinates had a conflict, the coordinate we are checking is not available
-                isAvailable = false; 
-            }
+    /*
+     *  Starting owners where the first half of the lands belong to the first player, and the rest to the second
+     */
+    private static int[] splitInHalf(int landCount){
+        int[] startOwners = new int[landCount];
+        for (int i = landCount/2; i < landCount; i++) {
+            startOwners[i] = 1;
         }
-        return isAvailable;
+        return startOwners;
     }
 
     /*
-     *  Finds and sets all neighbours of the given land
-     *  Important: Only use this method if the land has not yet been added to this.lands
-     *  This is because this method does not check if the land being examined is the same as the parameter land
+     * Constructor for copying a board
+     * The map and the players are shared, only the state of the lands is copied
      */
-    private void setNeighboursOfLand(Land land){
-        for (Land possibleNeighbour : this.lands) { // For each existing coordinate.
-            boolean bordering = false;
-            // Just like when checking for collisions, we now check for the very specific collison of lying exactly in the ring 3 away from the center.
-            // But only in one coordinate. In the other, it must be closer than 3. Otherwise, it is only touching corners or less.
-            if((possibleNeighbour.coords.x == land.coords.x-3 || possibleNeighbour.coords.x == land.coords.x+3)){
-                // Using the exact same technique as in isCoordinateAvailable(), we now want this specific collision
-                // This checks that it does not lie further away than 2 in the y-coordinate in either positive or negative
-                if(!(possibleNeighbour.coords.y < land.coords.y-2 || possibleNeighbour.coords.y > land.coords.y+2)){
-                    bordering = true;
-                }
-            }
-            if((possibleNeighbour.coords.y == land.coords.y-3 || possibleNeighbour.coords.y == land.coords.y+3)){
-                // Using the exact same technique as in isCoordinateAvailable(), we now want this specific collision
-                // This checks that it does not lie further away than 2 in the x-coordinate in either positive or negative
-                if(!(possibleNeighbour.coords.x < land.coords.x-2 || possibleNeighbour.coords.x > land.coords.x+2)){
-                    bordering = true;
-                }
-            }
-            if(bordering){
-                land.addNeighbour(possibleNeighbour);
-                possibleNeighbour.addNeighbour(land);
-            }
-        }
+    private Board(Board original){
+        this.topology = original.topology;
+        this.players = original.players;
+        this.owner = new int[original.owner.length];
+        this.troops = new int[original.troops.length];
+        System.arraycopy(original.owner, 0, this.owner, 0, owner.length);
+        System.arraycopy(original.troops, 0, this.troops, 0, troops.length);
+        this.hash = original.hash;
+        this.playerTurn = original.playerTurn;
+        this.playerCount = original.playerCount;
+        this.landCountForReinforcement = original.landCountForReinforcement;
+        this.frontiers = new FrontierIndex(this, original.frontiers);
+        this.landsOf = original.landsOf.clone();
+        this.troopsOf = original.troopsOf.clone();
+        this.allTroops = original.allTroops;
+        this.playersLeft = original.playersLeft;
     }
 
 
     /*
-     *  Sets the turn to the next player, then returns that player number
+     *  Sets the turn to the next player that is not eliminated, then returns that player number
      */
     public int nextPlayer(){
-        playerTurn += 1;
-        if(playerTurn > playerCount){
-            playerTurn = 1;
-        }
+        hash ^= Zobrist.turnKey(playerTurn);
+        // An eliminated player has no land to reinforce or attack from, so they are skipped. Without anyone left, the turn just goes round
+        do {
+            playerTurn = (playerTurn >= playerCount ? 1 : playerTurn + 1);
+        } while(playersLeft > 0 && landsOf[playerTurn-1] == 0);
+        hash ^= Zobrist.turnKey(playerTurn);
         return playerTurn;
     }
 
+    /*
+     *  Sets whose turn it is directly. Used by searches to give the turn back after looking at the next player's turn
+     */
+    public void setPlayerTurn(int playerTurn){
+        hash ^= Zobrist.turnKey(this.playerTurn);
+        this.playerTurn = playerTurn;
+        hash ^= Zobrist.turnKey(this.playerTurn);
+    }
+
 
 // - - - - - - - - - - - - - - - - - - Movements and attacks 
 
 
+    /*
+     *  Checks a move against the state of this board
+     *  The lands of the move are looked up by id, so a move made on a copy of this board can be checked here as well
+     */
     public boolean isMoveLegal(Move move){
+        int from = move.from.landID;
+        int to = move.to.landID;
+        int player = getPlayerIndex(move.player);
         // Does the specified move use a legal number of troops?
         if(move.count < 1 || 3 < move.count){
             return false;
         }
         // Is there enough troops in the from-land to move any from it? 1 must remain on the land
-        if(move.from.getTroopCount()-1 < move.count){
+        if(troops[from]-1 < move.count){
             return false;
         }
         // Does the current player control the source of the movement?
-        if(move.from.getController() != move.player){
+        if(player == -1 || owner[from] != player){
             return false;
         }
         
         // Does the current player control the target?
-        if(move.player == move.to.getController()){
+        if(owner[to] == player){
             // This is a movement
             // Are the two specified lands connected?
-            if(!move.from.isConnectedTo(move.to)){
+            if(!isConnected(from, to)){
                 return false;
             }
             // This movement is legal
         } else {
             // This is an attack
             // Are the two lands neighbours?
-            if(!move.from.hasNeighboringLand(move.to)){
+            if(!topology.isNeighbour(from, to)){
                 return false;
             }
             // This attack is legal
@@ -258,19 +185,17 @@ public class Board {
      *  Sums up the total amount of reinforcements a specified player would gain, if they were to reinforce right now
      */
     public int countReinforcements(Player player){
-        int count = 3;
-        Math.max(count, getControlledLandsCount(player)/landCountForReinforcement);
-
-        return count;
+        return Math.max(3, getControlledLandsCount(player)/landCountForReinforcement);
     }
 
 // - - - - - - - - - - - - - - - - - - Actions that can be performed
 
     public ArrayList<Land> getListOfActionableLands(Player player){
+        int playerIndex = getPlayerIndex(player);
         ArrayList<Land> candidateLands = new ArrayList<>();
-        for (Land land : this.lands) {
-            if(land.getController() == player && land.getTroopCount() > 1){
-                candidateLands.add(land);
+        for (int i = 0; i < owner.length; i++) {
+            if(owner[i] == playerIndex && troops[i] > 1){
+                candidateLands.add(getLand(i));
             }
         }
         return candidateLands;
@@ -278,24 +203,292 @@ public class Board {
     
     /*
      *  With a move and a specific outcome, return a copy of the board where this has happened
+     *  Searches should prefer applyOutcome and undo on a single board, as this copies the board for every outcome
      */
     public Board applyOutcomeOnBoard(Move move, Outcome outcome){
         Board newBoard = this.copy();
-        Land newAttLand = newBoard.lands.get(newBoard.lands.indexOf(move.from));
-        Land newDefLand = newBoard.lands.get(newBoard.lands.indexOf(move.to));
+        newBoard.applyOutcome(move, outcome);
+        // Return the copy with the change
+        return newBoard;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Changing the board in place, and reverting it again
+
+    /*
+     *  Every apply-method changes this board, and returns an undo record for the change.
+     *  Handing the record to undo() reverts the board exactly, including who controls a captured land.
+     *  Changes must be undone in the reverse order of how they were applied, just like a stack.
+     *
+     *  The record is packed into a long, so walking a search tree does not allocate anything:
+     *  - bits 0-23: the from-land (or the reinforced land)
+     *  - bits 24-47: the to-land
+     *  - bits 62-63: the kind of change
+     *  For attacks, bit 55 is set if the to-land was captured, and bits 48-54 then hold its previous controller plus one,
+     *  which is 0 for a land nobody controlled. Bits 56-58 hold the attackers that died and bits 59-61 the defenders that died.
+     *  For movements and reinforcements, bits 48-61 hold the troop count.
+     */
+    private static final long UNDO_ATTACK = 0L;
+    private static final long UNDO_MOVEMENT = 1L;
+    private static final long UNDO_REINFORCEMENT = 2L;
+    private static final int UNDO_MAX_LAND = (1 << 24) - 1;
+    private static final int UNDO_MAX_COUNT = (1 << 14) - 1;
+    private static final long UNDO_CAPTURED = 1L << 55;
+    private static final int UNDO_MAX_PLAYERS = (1 << 7) - 2;  // a player index plus one must fit in 7 bits
+
+    /*
+     *  Applies the outcome of one roll of the dice in an attack
+     *  If the defenders are wiped out, one attacker moves in, and the attacker takes control of the land
+     */
+    public long applyOutcome(int from, int to, int playerIndex, int attackersDying, int defendersDying){
+        if(attackersDying > 7 || defendersDying > 7){
+            throw new IllegalArgumentException("An outcome cannot kill more than 7 troops on either side");
+        }
+        checkUndoLands(from, to);
         // Attacking land has lost as many troops as attackers have died
-        newAttLand.changeTroopCount(-outcome.attackersDying);
+        changeTroopCount(from, -attackersDying);
         // Defender land has lost as many troops as defenders have died
-        newDefLand.changeTroopCount(-outcome.defendersDying);
+        changeTroopCount(to, -defendersDying);
+        long capture = 0;
         // Did the land change hands?
-        // Get the land in the copy that matches the land in the move.to
-        if(newDefLand.getTroopCount() == 0){
-            newAttLand.changeTroopCount(-1); // Move the guy who captures
-            newDefLand.changeTroopCount(1); // He moves here
-            newDefLand.changeController(move.player); // Now owned by the attacker
+        if(troops[to] == 0){
+            // The previous controller can be -1, for a land nobody controlled, so the capture has a bit of its own
+            capture = UNDO_CAPTURED | ((long) (owner[to] + 1) << 48);
+            changeTroopCount(from, -1); // Move the guy who captures
+            changeTroopCount(to, 1); // He moves here
+            changeController(to, playerIndex); // Now owned by the attacker
         }
-        // Return the copy with the change
-        return newBoard;
+        return from | ((long) to << 24) | capture | ((long) attackersDying << 56) | ((long) defendersDying << 59) | (UNDO_ATTACK << 62);
+    }
+
+    public long applyOutcome(Move move, Outcome outcome){
+        return applyOutcome(move.from.landID, move.to.landID, getPlayerIndex(move.player), outcome.attackersDying, outcome.defendersDying);
+    }
+
+    /*
+     *  Moves troops between two lands. Does not check that the movement is legal
+     */
+    public long applyMovement(int from, int to, int count){
+        checkUndoLands(from, to);
+        checkUndoCount(count);
+        changeTroopCount(from, -count);
+        changeTroopCount(to, count);
+        return from | ((long) to << 24) | ((long) count << 48) | (UNDO_MOVEMENT << 62);
+    }
+
+    public long applyMovement(Move move){
+        return applyMovement(move.from.landID, move.to.landID, move.count);
+    }
+
+    /*
+     *  Places reinforcements on a land. Does not check that the reinforcement is legal
+     */
+    public long applyReinforcement(int landID, int count){
+        checkUndoLands(landID, 0);
+        checkUndoCount(count);
+        changeTroopCount(landID, count);
+        return landID | ((long) count << 48) | (UNDO_REINFORCEMENT << 62);
+    }
+
+    public long applyReinforcement(Reinforcement reinforcement){
+        return applyReinforcement(reinforcement.land.landID, reinforcement.count);
+    }
+
+    /*
+     *  Reverts the change the undo record was returned for
+     */
+    public void undo(long undo){
+        int from = (int) (undo & UNDO_MAX_LAND);
+        int to = (int) ((undo >>> 24) & UNDO_MAX_LAND);
+        long kind = undo >>> 62;
+        if(kind == UNDO_ATTACK){
+            if((undo & UNDO_CAPTURED) != 0){
+                // The land was captured, so move the capturing troop back, and give the land back
+                changeController(to, (int) ((undo >>> 48) & 0x7F) - 1);
+                changeTroopCount(to, -1);
+                changeTroopCount(from, 1);
+            }
+            changeTroopCount(from, (int) ((undo >>> 56) & 7));
+            changeTroopCount(to, (int) ((undo >>> 59) & 7));
+        } else {
+            int count = (int) ((undo >>> 48) & UNDO_MAX_COUNT);
+            if(kind == UNDO_MOVEMENT){
+                changeTroopCount(to, -count);
+                changeTroopCount(from, count);
+            } else {
+                changeTroopCount(from, -count);
+            }
+        }
+    }
+
+    private static void checkUndoLands(int from, int to){
+        if(from > UNDO_MAX_LAND || to > UNDO_MAX_LAND){
+            throw new IllegalArgumentException("Undo records only support land ids up to " + UNDO_MAX_LAND);
+        }
+    }
+
+    private static void checkUndoCount(int count){
+        if(count < 0 || count > UNDO_MAX_COUNT){
+            throw new IllegalArgumentException("Undo records only support troop counts from 0 to " + UNDO_MAX_COUNT);
+        }
+    }
+
+
+// - - - - - - - - - - - - - - - - - - State of single lands
+
+
+    /*
+     *  Returns the Land object for the given id
+     *  The same object is returned every time for the same id on this board
+     */
+    public Land getLand(int landID){
+        if(lands == null){
+            lands = new Land[owner.length];
+        }
+        Land land = lands[landID];
+        if(land == null){
+            land = new Land(this, landID);
+            lands[landID] = land;
+        }
+        return land;
+    }
+
+    public int getTroops(int landID){
+        return troops[landID];
+    }
+
+    /*
+     *  Returns the index of the player controlling the land, or -1 if no one does
+     */
+    public int getOwner(int landID){
+        return owner[landID];
+    }
+
+    /*
+     *  Returns the player controlling the land, or null if no one does
+     */
+    public Player getController(int landID){
+        int index = owner[landID];
+        return (index == -1 ? null : players[index]);
+    }
+
+    /*
+     * Changes the troop count of the land by the specified amount
+     * Positive number increases the troop count, whilst negative will decrease it
+     */
+    public void changeTroopCount(int landID, int change){
+        int landOwner = owner[landID];
+        hash ^= Zobrist.landKey(landID, landOwner, troops[landID]);
+        troops[landID] += change;
+        hash ^= Zobrist.landKey(landID, landOwner, troops[landID]);
+        allTroops += change;
+        if(landOwner != -1){
+            troopsOf[landOwner] += change;
+        }
+    }
+
+    /*
+     *  Sets the player with the given index as the controller of the land
+     */
+    public void changeController(int landID, int playerIndex){
+        int oldOwner = owner[landID];
+        if(oldOwner == playerIndex){
+            return;
+        }
+        hash ^= Zobrist.landKey(landID, oldOwner, troops[landID]);
+        owner[landID] = playerIndex;
+        hash ^= Zobrist.landKey(landID, playerIndex, troops[landID]);
+        frontiers.controllerChanged(landID, oldOwner, playerIndex);
+        if(oldOwner != -1){
+            troopsOf[oldOwner] -= troops[landID];
+            if(--landsOf[oldOwner] == 0){
+                playersLeft--;
+            }
+        }
+        if(playerIndex != -1){
+            troopsOf[playerIndex] += troops[landID];
+            if(landsOf[playerIndex]++ == 0){
+                playersLeft++;
+            }
+        }
+        if(zones != null){
+            zones.controllerChanged(landID, oldOwner, playerIndex);
+        }
+    }
+
+    /*
+     *  Returns the player at the given index, in turn order
+     */
+    public Player getPlayer(int playerIndex){
+        return players[playerIndex];
+    }
+
+    /*
+     *  Finds the index of the player in this game, or -1 if the player is not in it
+     *  Players are matched by reference
+     */
+    public int getPlayerIndex(Player player){
+        for (int i = 0; i < players.length; i++) {
+            if(players[i] == player){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getPlayerCount(){
+        return playerCount;
+    }
+
+    /*
+     *  Returns the number of the player whose turn it is, starting from 1. Is 0 before the first turn
+     */
+    public int getPlayerTurn(){
+        return playerTurn;
+    }
+
+    public MapTopology getTopology(){
+        return topology;
+    }
+
+    public int getLandCountForReinforcement(){
+        return landCountForReinforcement;
+    }
+
+    /*
+     *  Returns the 64-bit Zobrist hash of this board
+     *  Two equal boards always have the same hash. Two boards with the same hash are equal, except for the rare collision
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /*
+     *  Replaces the whole state of the board, fx to put back a saved game. The arrays are owned by the board afterwards
+     *  Everything worked out from the state is worked out again, so this is linear in the number of lands
+     */
+    void setState(int[] owners, int[] troopCounts, int playerTurn){
+        if(owners.length != owner.length || troopCounts.length != troops.length){
+            throw new IllegalArgumentException("The state is for a map of " + owners.length + " lands, but this board has " + owner.length);
+        }
+        this.owner = owners;
+        this.troops = troopCounts;
+        this.playerTurn = playerTurn;
+        this.hash = computeHash();
+        this.frontiers = new FrontierIndex(this);
+        this.zones = null;
+        computeTotals();
+    }
+
+    /*
+     *  Computes the hash from scratch. Only needed when the whole state is set at once, every other change updates it as it goes
+     */
+    private long computeHash(){
+        long newHash = Zobrist.turnKey(playerTurn);
+        for (int i = 0; i < owner.length; i++) {
+            newHash ^= Zobrist.landKey(i, owner[i], troops[i]);
+        }
+        return newHash;
     }
 
 
@@ -307,23 +500,19 @@ public class Board {
      *  Find a land by name from the list of all lands
      */
     public Land getLandByName(String name){
-        Land foundLand = null;
-        for (Land land : this.lands) {
-            if(land.getName().toLowerCase().equals(name)){
-                foundLand = land;
-            }
-        }
-        return foundLand;
+        int landID = topology.getIdByName(name);
+        return (landID == -1 ? null : getLand(landID));
     }
 
     /*
      *  A method which returns a list of all the lands the specified player controls
      */
     public ArrayList<Land> getControlledLands(Player player){
+        int playerIndex = getPlayerIndex(player);
         ArrayList<Land> contLands = new ArrayList<>();
-        for (Land land : this.lands) {
-            if(land.getController() == player){
-                contLands.add(land);
+        for (int i = 0; i < owner.length; i++) {
+            if(owner[i] == playerIndex){
+                contLands.add(getLand(i));
             }
         }
         return contLands;
@@ -336,152 +525,189 @@ public class Board {
      * @return an ArrayList of Lands that border hostile lands
      */
     public ArrayList<Land> getControlledBorderLands(Player player){
-        ArrayList<Land> borderLands = getControlledLands(player);   // all Lands that border a hostile Land
-
-        for(Land l : borderLands){  // goes through all Lands the Player controls
-            if(!l.hasEnemyNeighbour()){   // this Land does not border a hostile Land
-                borderLands.remove(l);
-            }
+        int playerIndex = getPlayerIndex(player);
+        if(playerIndex == -1){
+            return new ArrayList<>();
+        }
+        int size = frontiers.frontierSize(playerIndex);
+        ArrayList<Land> borderLands = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            borderLands.add(getLand(frontiers.frontierLand(playerIndex, i)));
         }
-
         return borderLands;
     }
 
     /*
-     *  
+     *  Returns every zone of the player, as a list of lands each
+     *  A zone is a group of lands connected through lands of the same player, so troops can be moved anywhere within it
      */
     public ArrayList<ArrayList<Land>> getConnectedLandZones(Player player){
-        ArrayList<Land> ownedLands = this.getControlledLands(player);
+        int playerIndex = getPlayerIndex(player);
+        ZoneIndex index = getZones();
         ArrayList<ArrayList<Land>> connectedZones = new ArrayList<>(); // Make the list of zones. A zone is a list, so this is a list of lists
-        for (Land land : ownedLands) {
-            // For each owned land, check if it is part of a zone we know of, or if it is part of a new zone
-            if(connectedZones.size() == 0){
-                // If there are no found zones yet, make the first
-                ArrayList<Land> newZone = land.getAllConnectedLand();
-                newZone.add(land); // getAllConnectedLand removes the original caller, so add it again
-                connectedZones.add(newZone);
-            } else {
-                for (ArrayList<Land> zone : connectedZones) { // Now check if this current land is part of any current zone
-                    if(!zone.contains(land)){
-                        // New zone found, add it
-                        ArrayList<Land> newZone = land.getAllConnectedLand();
-                        newZone.add(land); // getAllConnectedLand removes the original caller, so add it again
-                        connectedZones.add(newZone);
-                    }
+        for (int zone = 0; zone < index.zoneCapacity(); zone++) {
+            int size = index.zoneSize(zone);
+            if(size > 0 && index.zoneOwner(zone) == playerIndex){
+                ArrayList<Land> lands = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    lands.add(getLand(index.zoneLand(zone, i)));
                 }
+                connectedZones.add(lands);
             }
         }
         return connectedZones;
     }
 
+
+// - - - - - - - - - - - - - - - - - - Totals of each player
+
+
     /*
-     *  Counts the amount of land a player controls
+     *  The totals are kept up to date on every change, so reading them is O(1),
+     *  and cheap enough for an AI to use on every node of a search
      */
-    public int getControlledLandsCount(Player player){
-        return getControlledLands(player).size();
+    public int getControlledLandsCount(int playerIndex){
+        return landsOf[playerIndex];
     }
 
-
     /*
-     *  Return the size of the list of land
+     *  The troops on all the lands of the player
      */
-    public int getBoardSize(){
-        return lands.size();
+    public int getTotalTroops(int playerIndex){
+        return troopsOf[playerIndex];
     }
 
-    // STATIC METHOD FOR ROLLING A SET OF DICE
-    // Method to roll a specified number of dice
-    public static ArrayList<Integer> rollDice(int count) {
-        Random rand = new Random();
-        ArrayList<Integer> diceRolls = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            diceRolls.add(rand.nextInt(6) + 1); // Rolling a six-sided die
-        }
-        return diceRolls;
+    /*
+     *  The troops on every land of the board, including lands no one controls
+     */
+    public int getTotalTroops(){
+        return allTroops;
     }
 
+    /*
+     *  A player is eliminated when they have no land left. Searches can bring them back, by undoing the capture of their last land
+     */
+    public boolean isEliminated(int playerIndex){
+        return landsOf[playerIndex] == 0;
+    }
 
+    /*
+     *  The number of players that are not eliminated
+     */
+    public int getPlayersLeft(){
+        return playersLeft;
+    }
 
-    @Override
-    public String toString(){
-        String output = "\n";
-        // Step 1: Find all 4 extreme coordinate values.
-        // The highest and lowest x-coordinates, and the highest and lowest y-coordinates
-        // Start by setting the first land as the initial one
-        Coordinate highX = centersInUse.get(0);
-        Coordinate lowX = centersInUse.get(0);
-        Coordinate highY = centersInUse.get(0);
-        Coordinate lowY = centersInUse.get(0);
-
-        for (Coordinate coord : centersInUse) {
-            if(coord.x > highX.x){
-                highX = coord;
-            } else if(coord.x < lowX.x){
-                lowX = coord;
-            }
-            if(coord.y > highY.y){
-                highY = coord;
-            } else if(coord.y < lowY.y){
-                lowY = coord;
+    private void computeTotals(){
+        landsOf = new int[playerCount];
+        troopsOf = new int[playerCount];
+        allTroops = 0;
+        playersLeft = 0;
+        for (int land = 0; land < owner.length; land++) {
+            allTroops += troops[land];
+            if(owner[land] != -1){
+                landsOf[owner[land]]++;
+                troopsOf[owner[land]] += troops[land];
             }
         }
-        int drawBoxWidth = (highX.x+1) - (lowX.x-1) + 1;
-        int drawBoxHeight = (highY.y+1) - (lowY.y-1) + 1;
-        int offsetX = 0-(lowX.x-1);
-        int offsetY = 0-(lowY.y-1);
-        char[][] box = new char[drawBoxHeight][drawBoxWidth];
-        for (int y = 0; y < drawBoxHeight; y++) {
-            for (int x = 0; x < drawBoxWidth; x++) {
-                box[y][x] = ' ';
+        for (int player = 0; player < playerCount; player++) {
+            if(landsOf[player] > 0){
+                playersLeft++;
             }
         }
-        
-        // Now insert all lands
-        for (Land land : lands) {
-            for (int i = -1; i < 2; i++) {
-                for (int j = -1; j < 2; j++) {
-                    // For a y-coordinate, its distance to the lowY should be its distance to 0
-                    // Which, translated to an easier approach, we can flip the number in the coordinates by just subtracting the offset coordinate from the size of the box
-                    // If the actual coordinate is -3, with the offset of 4, that means the lowest number was -3.
-                    // That gives a distance of 0. Since we are using the box, we need to subtract one, as we added 1 when we made it, to have room for the actual squares.
-                    char toSet = ' ';
-                    toSet = (char) (land.landID+97);
-                    // Logic below for setting each one of the 9 tiles a land owns
-                    // if(i == 0 && j == 0){
-                    //     // Middle
-                    //     toSet = (char) (land.landID+97);
-                    // } else if(i == 0){
-                    //     // Right and left middle
-                    //     toSet = '|';
-                    // } else if(j == 0){
-                    //     // Bottom and top middle
-                    //     toSet = '-';
-                    // } else if(i == -1 && j == -1){
-                    //     // Top left
-                    //     // toSet = '\\';
-                    //     toSet = '+';
-                    // } else if(i == 1 && j == -1){
-                    //     // Bottom left
-                    //     // toSet = '/';
-                    //     toSet = '+';
-                    // } else if(i == -1 && j == 1){
-                    //     // Top right
-                    //     // toSet = '/';
-                    //     toSet = '+';
-                    // } else if(i == 1 && j == 1){
-                    //     // Bottom right
-                    //     // toSet = '\\';
-                    //     toSet = '+';
-                    // }
-                    box[drawBoxHeight-(land.coords.y+offsetY+i)-1][land.coords.x+offsetX+j] = toSet;
-                } 
-            }
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Frontiers
+
+
+    /*
+     *  The number of neighbours of the land that someone else, or no one, controls
+     */
+    public int getHostileNeighbourCount(int landID){
+        return frontiers.hostileCount(landID);
+    }
+
+    /*
+     *  The number of lands the player controls that border a hostile land
+     */
+    public int getFrontierSize(int playerIndex){
+        return frontiers.frontierSize(playerIndex);
+    }
+
+    /*
+     *  Returns the land at the given place in the frontier of the player. Places go from 0 to the size of the frontier
+     *  The order depends on how the board got to where it is, not only on where it is
+     */
+    public int getFrontierLand(int playerIndex, int index){
+        return frontiers.frontierLand(playerIndex, index);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Zones
+
+
+    /*
+     *  Whether troops can be moved between the two lands, meaning they are different lands in the same zone
+     */
+    public boolean isConnected(int landID, int otherID){
+        if(landID == otherID || owner[landID] == -1 || owner[landID] != owner[otherID]){
+            return false;
         }
-        // Now make the string:
-        for (char[] cs : box) { // This iterates over the rows
-            output = output + new String(cs) + "\n";
+        ZoneIndex index = getZones();
+        return index.zoneOf(landID) == index.zoneOf(otherID);
+    }
+
+    /*
+     *  Returns the id of the zone of the land, or -1 if no one controls it
+     *  Ids are only meaningful until the next change of controller, as zones are merged and split
+     */
+    public int getZoneId(int landID){
+        return getZones().zoneOf(landID);
+    }
+
+    public int getZoneSize(int zoneID){
+        return getZones().zoneSize(zoneID);
+    }
+
+    /*
+     *  Returns the land at the given place in the zone. Places go from 0 to the size of the zone, in no particular order
+     */
+    public int getZoneLand(int zoneID, int index){
+        return getZones().zoneLand(zoneID, index);
+    }
+
+    private ZoneIndex getZones(){
+        if(zones == null){
+            zones = new ZoneIndex(this);
         }
-        return output;
+        return zones;
+    }
+
+    /*
+     *  Counts the amount of land a player controls
+     */
+    public int getControlledLandsCount(Player player){
+        int playerIndex = getPlayerIndex(player);
+        return (playerIndex == -1 ? 0 : landsOf[playerIndex]);
+    }
+
+
+    /*
+     *  Return the number of lands on the board
+     */
+    public int getBoardSize(){
+        return owner.length;
+    }
+
+
+
+    /*
+     *  The whole map drawn as text, see BoardRenderer
+     */
+    @Override
+    public String toString(){
+        return new BoardRenderer().render(this).toString();
     }
 
     /*
@@ -491,6 +717,7 @@ public class Board {
      *  - Are the same lands owned by the same players?
      *  - Do these same lands have the same troop count?
      *  Warning: The time of calling this method can actually play a role. This does not track remaining reinforcements, which could be a problem
+     *  Boards with different hashes are never equal, so most unequal boards are told apart in constant time
      */
     @Override
     public boolean equals(Object other){
@@ -501,63 +728,29 @@ public class Board {
 		if(!(other instanceof Board))
 			return false;
 		Board otherBoard = (Board) other;
-        if(otherBoard.lands.size() != this.lands.size())
+        if(otherBoard.hash != this.hash)
+            return false;
+        if(otherBoard.topology != this.topology)
             return false;
         if(otherBoard.playerTurn != this.playerTurn)
             return false;
-        boolean landsEqual = true;
-        int thisLandIndex = 0;
-        while(landsEqual && thisLandIndex < this.lands.size()){ // While we still have lands to check, and we have not found a mismatch, keep going
-            // The goal here is to check that each land has a mirror in the other board's list of lands
-            Land cLand = lands.get(thisLandIndex);
-            if(!otherBoard.lands.contains(cLand)){
-                // Contains uses the equals function for lands.
-                // If we enter here, the otherBoard did not contain this land.
-                landsEqual = false;
-            }
-        }
-        return landsEqual;
+        // Owners are compared by index, which is the same as comparing players by reference, as long as both boards share the players
+        return Arrays.equals(otherBoard.owner, this.owner) && Arrays.equals(otherBoard.troops, this.troops);
+    }
+
+    @Override
+    public int hashCode(){
+        return (int) (hash ^ (hash >>> 32));
     }
 
 
     /**
-     * Creates and returns a deep copy of this Board.
-     * @return a deep copy of this Board
+     * Creates and returns a copy of this Board.
+     * The map is shared, since it never changes, so this only copies the owner and troop of each land.
+     * @return a copy of this Board
      */
     public Board copy(){
-        Board copy = new Board();
-
-        // Copies all lands
-        for(Coordinate c : this.centersInUse){  // copies the centers in use
-            copy.centersInUse.add(new Coordinate(c.x, c.y));
-        }
-
-        // Since we cannot just copy one land, making Land.copy is bad. Instead we copy the lands here
-        for(Land l : this.lands){   // copies the lands
-            Land landCopy = new Land(
-                l.getName(),
-                l.landID,
-                l.getController(),  // shallow copy of the Player.
-                new Coordinate(l.coords.x, l.coords.y)
-            );
-            copy.lands.add(landCopy);
-        }
-
-        // Setup neighbours for all the newly copied lands
-        for(Land l : this.lands){   // copies all neighbours of all lands
-            Land lCopy = copy.getLandByName(l.getName());    // copy's version of Land l
-            for(Land n : l.getNeighbours()){    // adds the neighbours
-                Land nCopy = copy.getLandByName(n.getName());    // copy's version of Land n
-                lCopy.addNeighbour(nCopy);  // adds copy's n as neighbour for copy's l
-            }
-        }
-
-        // copies meta information
-        copy.playerTurn = this.playerTurn;
-        copy.playerCount = this.playerCount;
-        copy.landCountForReinforcement = this.landCountForReinforcement;
-
-        return copy;
+        return new Board(this);
     }
 
 }
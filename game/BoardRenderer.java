@@ -0,0 +1,246 @@
+package game;
+import java.util.*;
+
+/**
+ * Draws a board as text, every land a 3x3 square of its letter at its coordinates, with y going up.
+ * The letters go a to z, then A to Z, and then around again, so on large maps a letter is not one land.
+ *
+ * Owners and troops can be drawn on top of the lands: the troops in the middle row, and the number of the owner in the bottom row,
+ * or - for a land nobody owns.
+ *
+ * Without a viewport the whole map is drawn. With one, only the window around its center is drawn,
+ * and only the lands in the window are looked at, found through the spatial hash of the map.
+ * So drawing a small window of a huge map costs about the same as drawing the window of a small one,
+ * after the spatial hash is built the first time.
+ *
+ * The text is drawn into the same buffers every time, so a renderer that draws the board every turn makes no garbage
+ * beyond the String it may be turned into. A renderer is used by one thread at a time.
+ */
+public final class BoardRenderer {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private boolean showOwners;
+    private boolean showTroops;
+
+    // The window to draw, or all of the map if the width is 0
+    private int centerX;
+    private int centerY;
+    private int width;
+    private int height;
+
+    // The area of the whole map, worked out once per map
+    private MapTopology boundsOf;
+    private int lowX;
+    private int lowY;
+    private int highX;
+    private int highY;
+
+    // The window of the last drawing, so single lands of it can be drawn again, see AnsiTerminalListener
+    private int frameMinX;
+    private int frameMinY;
+    private int frameMaxX;
+    private int frameMaxY;
+
+    private char[] canvas = new char[0];
+    private final StringBuilder output = new StringBuilder();
+
+    /*
+     *  A renderer that draws only the letters of the lands, like the board has always been printed
+     */
+    public BoardRenderer(){
+    }
+
+    /*
+     *  A renderer that draws owners and troops on top of the lands as asked
+     */
+    public BoardRenderer(boolean showOwners, boolean showTroops){
+        this.showOwners = showOwners;
+        this.showTroops = showTroops;
+    }
+
+    public void setShowOwners(boolean showOwners){
+        this.showOwners = showOwners;
+    }
+
+    public void setShowTroops(boolean showTroops){
+        this.showTroops = showTroops;
+    }
+
+    /*
+     *  Draws only the given number of columns and rows around the given coordinate from now on
+     */
+    public void setViewport(int centerX, int centerY, int width, int height){
+        if(width < 1 || height < 1){
+            throw new IllegalArgumentException("A viewport of " + width + "x" + height + " shows nothing");
+        }
+        if((long) (width + 1) * height > Integer.MAX_VALUE - 1){
+            throw new IllegalArgumentException("A viewport of " + width + "x" + height + " is too large to draw");
+        }
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.width = width;
+        this.height = height;
+    }
+
+    /*
+     *  Draws all of the map from now on
+     */
+    public void clearViewport(){
+        this.width = 0;
+        this.height = 0;
+    }
+
+    /*
+     *  Draws the board, and returns the text, which starts with a line break and ends every row with one
+     *  The text is kept in a buffer that is drawn over by the next call, so it must be used or copied before then
+     */
+    public CharSequence render(Board board){
+        MapTopology topology = board.getTopology();
+        int minX, minY, maxX, maxY;
+        if(width > 0){
+            minX = centerX - width / 2;
+            minY = centerY - height / 2;
+            maxX = minX + width - 1;
+            maxY = minY + height - 1;
+        } else {
+            findBounds(topology);
+            // A land covers one step to every side of its center
+            minX = lowX - 1;
+            minY = lowY - 1;
+            maxX = highX + 1;
+            maxY = highY + 1;
+            if((long) (maxX - minX + 2) * (maxY - minY + 1) > Integer.MAX_VALUE - 1){
+                throw new IllegalStateException("The map is too spread out to be drawn whole. Set a viewport instead");
+            }
+        }
+        frameMinX = minX;
+        frameMinY = minY;
+        frameMaxX = maxX;
+        frameMaxY = maxY;
+        int rowLength = maxX - minX + 2;    // with the line break
+        int rows = maxY - minY + 1;
+        int size = rowLength * rows;
+        if(canvas.length < size){
+            canvas = new char[size];
+        }
+        for (int row = 0; row < rows; row++) {
+            int start = row * rowLength;
+            Arrays.fill(canvas, start, start + rowLength - 1, ' ');
+            canvas[start + rowLength - 1] = '\n';
+        }
+
+        // Lands whose center is one step outside the window still show their edge in it
+        int landCount = topology.getLandCount();
+        long buckets = ((long) Math.floorDiv(maxX + 1, SpatialHash.BUCKET_SIZE) - Math.floorDiv(minX - 1, SpatialHash.BUCKET_SIZE) + 1)
+            * ((long) Math.floorDiv(maxY + 1, SpatialHash.BUCKET_SIZE) - Math.floorDiv(minY - 1, SpatialHash.BUCKET_SIZE) + 1);
+        if(buckets < landCount){
+            SpatialHash lands = topology.getSpatialHash();
+            int lastBucketX = Math.floorDiv(maxX + 1, SpatialHash.BUCKET_SIZE);
+            int lastBucketY = Math.floorDiv(maxY + 1, SpatialHash.BUCKET_SIZE);
+            for (int bucketY = Math.floorDiv(minY - 1, SpatialHash.BUCKET_SIZE); bucketY <= lastBucketY; bucketY++) {
+                for (int bucketX = Math.floorDiv(minX - 1, SpatialHash.BUCKET_SIZE); bucketX <= lastBucketX; bucketX++) {
+                    int land = lands.getBucket(bucketX, bucketY);
+                    if(land != -1){
+                        drawLand(board, land, minX, maxX, minY, maxY, rowLength);
+                    }
+                }
+            }
+        } else {
+            // The window holds more buckets than there are lands, fx when all of the map is drawn, so going through the lands is quicker
+            for (int land = 0; land < landCount; land++) {
+                drawLand(board, land, minX, maxX, minY, maxY, rowLength);
+            }
+        }
+
+        output.setLength(0);
+        output.append('\n');
+        output.append(canvas, 0, size);
+        return output;
+    }
+
+    /*
+     *  Draws the parts of the 3x3 square of the land that are inside the window
+     */
+    private void drawLand(Board board, int land, int minX, int maxX, int minY, int maxY, int rowLength){
+        MapTopology topology = board.getTopology();
+        int x = topology.getX(land);
+        int y = topology.getY(land);
+        if(x + 1 < minX || x - 1 > maxX || y + 1 < minY || y - 1 > maxY){
+            return;
+        }
+        char letter = LETTERS.charAt(land % LETTERS.length());
+        for (int dy = -1; dy <= 1; dy++) {
+            int cellY = y + dy;
+            if(cellY < minY || cellY > maxY){
+                continue;
+            }
+            // The top row of the text is the highest y
+            int rowStart = (maxY - cellY) * rowLength;
+            for (int dx = -1; dx <= 1; dx++) {
+                int cellX = x + dx;
+                if(cellX >= minX && cellX <= maxX){
+                    canvas[rowStart + cellX - minX] = cellChar(board, land, letter, dx, dy);
+                }
+            }
+        }
+    }
+
+    int getFrameMinX(){
+        return frameMinX;
+    }
+
+    int getFrameMinY(){
+        return frameMinY;
+    }
+
+    int getFrameMaxX(){
+        return frameMaxX;
+    }
+
+    int getFrameMaxY(){
+        return frameMaxY;
+    }
+
+    /*
+     *  What the land looks like one step in the given directions from its center, as it would be drawn now
+     */
+    char getCell(Board board, int land, int dx, int dy){
+        return cellChar(board, land, LETTERS.charAt(land % LETTERS.length()), dx, dy);
+    }
+
+    private char cellChar(Board board, int land, char letter, int dx, int dy){
+        if(dy == 0 && showTroops){
+            // Up to 999 troops right aligned in the middle row, and 99+ for more
+            int troops = board.getTroops(land);
+            if(troops > 999){
+                return (dx == 1 ? '+' : '9');
+            }
+            int digit = (dx == 1 ? troops % 10 : dx == 0 ? troops / 10 % 10 : troops / 100);
+            boolean leading = (dx == -1 ? troops < 100 : dx == 0 && troops < 10);
+            return (leading ? ' ' : (char) ('0' + digit));
+        }
+        if(dy == -1 && showOwners){
+            int owner = board.getOwner(land);
+            return (owner < 0 ? '-' : Character.toUpperCase(Character.forDigit((owner + 1) % 36, 36)));
+        }
+        return letter;
+    }
+
+    private void findBounds(MapTopology topology){
+        if(boundsOf == topology){
+            return;
+        }
+        lowX = topology.getX(0);
+        highX = lowX;
+        lowY = topology.getY(0);
+        highY = lowY;
+        for (int land = 1; land < topology.getLandCount(); land++) {
+            lowX = Math.min(lowX, topology.getX(land));
+            highX = Math.max(highX, topology.getX(land));
+            lowY = Math.min(lowY, topology.getY(land));
+            highY = Math.max(highY, topology.getY(land));
+        }
+        boundsOf = topology;
+    }
+}
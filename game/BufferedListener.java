@@ -0,0 +1,63 @@
+package game;
+import java.io.PrintStream;
+
+/*
+ *  Makes the same text as ConsoleListener, but keeps it in memory instead of printing it line by line
+ *  This is for when only some games are worth looking at, fx keeping the log of every game in a batch,
+ *  and only printing the ones where an AI did something wrong.
+ *  The text is written out in one go by flush, or on its own once there is more of it than the given capacity.
+ */
+public class BufferedListener extends ConsoleListener {
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final PrintStream target;
+    private final int capacity;
+
+    /*
+     *  Keeps all the text until it is asked for, and never writes it anywhere on its own
+     */
+    public BufferedListener(){
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param target - where flush writes the text, or null if it is only read with getText
+     * @param capacity - the number of characters to keep before writing them to the target on their own
+     */
+    public BufferedListener(PrintStream target, int capacity){
+        this.target = target;
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected void println(String line){
+        buffer.append(line).append(System.lineSeparator());
+        if(target != null && buffer.length() > capacity){
+            flush();
+        }
+    }
+
+    /*
+     *  Writes all the text kept so far to the target, and empties the buffer
+     */
+    public void flush(){
+        if(target == null){
+            throw new IllegalStateException("This listener has nowhere to write its text");
+        }
+        target.print(buffer);
+        target.flush();
+        buffer.setLength(0);
+    }
+
+    public String getText(){
+        return buffer.toString();
+    }
+
+    public int length(){
+        return buffer.length();
+    }
+
+    public void clear(){
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,136 @@
+package game;
+import java.io.PrintStream;
+import java.util.*;
+
+import containers.*;
+import players.*;
+
+/*
+ *  Prints a game as it is played, for the humans playing it
+ */
+public class ConsoleListener implements GameEventListener {
+
+    private final PrintStream out;
+    // The board is drawn every turn, so the same renderer is used for all of them
+    private final BoardRenderer renderer = new BoardRenderer(true, true);
+
+    public ConsoleListener(){
+        this(System.out);
+    }
+
+    public ConsoleListener(PrintStream out){
+        this.out = out;
+    }
+
+    /*
+     *  The renderer the board is drawn with at the start of every turn, fx to set a viewport on a huge map
+     */
+    public BoardRenderer getRenderer(){
+        return renderer;
+    }
+
+    /*
+     *  Every line printed goes through here, so a subclass can send the text somewhere else
+     */
+    protected void println(String line){
+        out.println(line);
+    }
+
+    @Override
+    public void turnStarted(Board board, int playerNumber){
+        println("\nThe turn of player " + playerNumber + " begins.");
+        // Print the board
+        println("The board looks like the following:");
+        println(renderer.render(board).toString());
+        println("\nReinforcement phase begins.");
+    }
+
+    @Override
+    public void reinforcementPlaced(Board board, Player player, Land land, int count){
+        println("Placed " + count + " troops in " + land.getName());
+    }
+
+    @Override
+    public void reinforcementRejected(Board board, Player player, Reinforcement reinforcement){
+        println("The specified reinforcement could not be carried out.");
+        println("Please check that the specifiec troop amount is between 1 and the remaining amount, and that the targeted land is controlled by you.");
+    }
+
+    @Override
+    public void actionPhaseStarted(Board board, Player player){
+        println("\nAction phase begins.");
+    }
+
+    @Override
+    public void diceRolled(Move attack, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+        println("The attacker rolled " + rollsToString(attackerRolls, attackerDice) + ".");
+        println("The defender rolled " + rollsToString(defenderRolls, defenderDice) + ".");
+        // The highest dice are compared against each other, then the second highest, and so on
+        int[] attacker = Arrays.copyOf(attackerRolls, attackerDice);
+        int[] defender = Arrays.copyOf(defenderRolls, defenderDice);
+        Arrays.sort(attacker);
+        Arrays.sort(defender);
+        int fights = Math.min(attackerDice, defenderDice);
+        for (int i = 1; i <= fights; i++) {
+            int highestAttacker = attacker[attackerDice-i];
+            int highestDefender = defender[defenderDice-i];
+            println("\nComparing attacker roll of " + highestAttacker + " to highest defender roll of " + highestDefender);
+            if(highestAttacker > highestDefender){
+                println("The attacker won!");
+            } else {
+                println("The defender won!");
+            }
+        }
+    }
+
+    private static String rollsToString(int[] rolls, int count){
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            builder.append(rolls[i]);
+            if(i < count-1){
+                builder.append(", ");
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    @Override
+    public void battleResolved(Move attack, int attackerLosses, int defenderLosses){
+        println("\nThe attacker lost " + attackerLosses + " troops and the defender lost " + defenderLosses + " troops.");
+    }
+
+    @Override
+    public void landCaptured(Move attack){
+        println("\nThe attacker has taken the land of " + attack.to.getName() + "!");
+    }
+
+    @Override
+    public void attackConcluded(Move attack){
+        println("Your attack from " + attack.from.getName() + " against " + attack.to.getName() + " with " + attack.count + " troops has concluded.");
+        println("What would you like to do now?");
+    }
+
+    @Override
+    public void movementCarriedOut(Move movement){
+        println("Your movement from " + movement.from.getName() + " and to " + movement.to.getName() + " with " + movement.count + " troops was a success!");
+        println("What would you like to do now?");
+    }
+
+    @Override
+    public void moveRejected(Board board, Move move){
+        println("The specified move could not be executed. Try again.");
+        println("What would you like to do now?");
+    }
+
+    @Override
+    public void turnEnded(Board board, int playerNumber){
+        println("The turn of player " + playerNumber + " is over.");
+    }
+
+    @Override
+    public void gameEnded(Board board, Player winner, int turns){
+        if(winner == null){
+            println("\nThe game has gone on for " + turns + " turns, and is declared a draw.");
+        }
+    }
+}
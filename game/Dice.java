@@ -0,0 +1,83 @@
+package game;
+import java.util.SplittableRandom;
+
+/*
+ *  The dice of one game
+ *  The same seed always gives the same rolls, so a game where an AI did something odd can be played again exactly.
+ *
+ *  The rolls come from SplitMix64, the same generator SplittableRandom uses, but the state is kept here as a plain long.
+ *  That makes the dice cheap to copy, and lets the state be saved with the rest of a game and put back later.
+ *  A Dice is not safe to share between threads, so every game has its own.
+ */
+public final class Dice {
+
+    public static final int SIDES = 6;
+
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+    // The largest multiple of 6 that fits in 32 bits. Anything above it is thrown away, so no side comes up more often
+    private static final long LIMIT = (1L << 32) - (1L << 32) % SIDES;
+
+    private long state;
+
+    /*
+     *  Dice with a seed of their own, for games that do not need to be played again
+     */
+    public Dice(){
+        this(new SplittableRandom().nextLong());
+    }
+
+    public Dice(long seed){
+        this.state = seed;
+    }
+
+    /*
+     *  The dice for one game out of many, fx in a batch
+     *  Each game gets a stream of its own from the seed and its index alone, so it rolls the same no matter which thread plays it, or when
+     */
+    public static Dice forGame(long seed, long gameIndex){
+        return new Dice(new SplittableRandom(seed + gameIndex * GAMMA).nextLong());
+    }
+
+    /*
+     *  Rolls a single die
+     */
+    public int roll(){
+        long bits;
+        do {
+            bits = next() >>> 32;
+        } while(bits >= LIMIT);
+        return (int) (bits % SIDES) + 1;
+    }
+
+    /*
+     *  Rolls the given number of dice into the start of the buffer, and returns the count, so it can be used in place
+     */
+    public int roll(int[] buffer, int count){
+        for (int i = 0; i < count; i++) {
+            buffer[i] = roll();
+        }
+        return count;
+    }
+
+    /*
+     *  The state of the dice. Dice set to this state later roll the same as these will from now on
+     */
+    public long getState(){
+        return state;
+    }
+
+    public void setState(long state){
+        this.state = state;
+    }
+
+    public Dice copy(){
+        return new Dice(state);
+    }
+
+    private long next(){
+        long z = (state += GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
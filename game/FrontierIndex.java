@@ -0,0 +1,139 @@
+package game;
+
+/*
+ *  Keeps track of the frontier of every player: the lands they control that border a land of someone else
+ *  Attacks can only be made from the frontier, and reinforcements are only useful there, so the AIs look at nothing else.
+ *
+ *  Every land knows how many of its neighbours are hostile, meaning controlled by anyone but its own controller, or by no one.
+ *  Every player has a list of their frontier lands, and every land knows its place in that list, so adding and removing is O(1).
+ *  When the controller of a land changes, only the land and its neighbours are looked at:
+ *  a neighbour's count only changes if the land went from or to the neighbour's own controller.
+ *
+ *  Lands nobody controls are on no frontier, but they do count as hostile to the lands around them.
+ */
+final class FrontierIndex {
+
+    private final Board board;
+    private final MapTopology topology;
+
+    private final int[] hostileCount;   // the hostile neighbours of each land
+    private final int[] indexInFrontier; // where the land is in the frontier of its controller, or -1 if it is on no frontier
+    private final int[][] frontier;     // the frontier lands of each player. Only the first frontierSize of them are in use
+    private final int[] frontierSize;
+
+    FrontierIndex(Board board){
+        this.board = board;
+        this.topology = board.getTopology();
+        int landCount = topology.getLandCount();
+        hostileCount = new int[landCount];
+        indexInFrontier = new int[landCount];
+        frontier = new int[board.getPlayerCount()][];
+        frontierSize = new int[board.getPlayerCount()];
+        for (int player = 0; player < frontier.length; player++) {
+            frontier[player] = new int[16];
+        }
+        for (int land = 0; land < landCount; land++) {
+            int owner = board.getOwner(land);
+            int count = 0;
+            for (int i = 0; i < topology.getNeighbourCount(land); i++) {
+                if(board.getOwner(topology.getNeighbour(land, i)) != owner){
+                    count++;
+                }
+            }
+            hostileCount[land] = count;
+            indexInFrontier[land] = -1;
+            if(owner != -1 && count > 0){
+                add(land, owner);
+            }
+        }
+    }
+
+    /*
+     *  Copies the index of another board with the same state, for the given board
+     *  The frontiers keep their order, so a copy finds the attacks in the same order as the original
+     */
+    FrontierIndex(Board board, FrontierIndex original){
+        this.board = board;
+        this.topology = original.topology;
+        hostileCount = original.hostileCount.clone();
+        indexInFrontier = original.indexInFrontier.clone();
+        frontier = new int[original.frontier.length][];
+        frontierSize = original.frontierSize.clone();
+        for (int player = 0; player < frontier.length; player++) {
+            frontier[player] = original.frontier[player].clone();
+        }
+    }
+
+    int hostileCount(int land){
+        return hostileCount[land];
+    }
+
+    int frontierSize(int player){
+        return frontierSize[player];
+    }
+
+    int frontierLand(int player, int index){
+        return frontier[player][index];
+    }
+
+    /*
+     *  Must be called after the controller of the land has changed in the board
+     */
+    void controllerChanged(int land, int oldOwner, int newOwner){
+        if(indexInFrontier[land] != -1){
+            remove(land, oldOwner);
+        }
+        int count = 0;
+        int neighbourCount = topology.getNeighbourCount(land);
+        for (int i = 0; i < neighbourCount; i++) {
+            int neighbour = topology.getNeighbour(land, i);
+            int owner = board.getOwner(neighbour);
+            if(owner != newOwner){
+                count++;
+            }
+            // The land stopped being hostile to the neighbour, or started being it
+            if(owner == oldOwner){
+                hostileCount[neighbour]++;
+            } else if(owner == newOwner){
+                hostileCount[neighbour]--;
+            } else {
+                continue;
+            }
+            if(owner != -1){
+                boolean onFrontier = (indexInFrontier[neighbour] != -1);
+                if(hostileCount[neighbour] > 0 && !onFrontier){
+                    add(neighbour, owner);
+                } else if(hostileCount[neighbour] == 0 && onFrontier){
+                    remove(neighbour, owner);
+                }
+            }
+        }
+        hostileCount[land] = count;
+        if(newOwner != -1 && count > 0){
+            add(land, newOwner);
+        }
+    }
+
+    private void add(int land, int player){
+        int size = frontierSize[player];
+        if(size == frontier[player].length){
+            int[] grown = new int[size * 2];
+            System.arraycopy(frontier[player], 0, grown, 0, size);
+            frontier[player] = grown;
+        }
+        frontier[player][size] = land;
+        indexInFrontier[land] = size;
+        frontierSize[player] = size + 1;
+    }
+
+    /*
+     *  Takes the land off the frontier of the player, by moving the last land of the frontier into its place
+     */
+    private void remove(int land, int player){
+        int index = indexInFrontier[land];
+        int last = frontier[player][--frontierSize[player]];
+        frontier[player][index] = last;
+        indexInFrontier[last] = index;
+        indexInFrontier[land] = -1;
+    }
+}
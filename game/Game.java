@@ -7,12 +7,21 @@ import players.*;
 
 public class Game {
 
-    private Scanner scanner = new Scanner(System.in);
     private ArrayList<Player> players;
 
-    // By using the one random number, using it again should make the same board. The dice rolls do not use the seed
-    // For any combination of seed, playerCount and board size, a specific board should be generated
+    // By using the one random number, using it again should make the same board. The dice have a seed of their own
+    // For any combination of seed, playerCount and board size, MapGenerator makes the same board
     private Board board;
+    private Dice dice;
+
+    private GameEventListener listener;
+    private ReplayLog replay;   // everything that happens is written here too, unless it is null
+    private int maxTurns;       // the game is a draw after this many turns, or never if 0
+    private int turnCount;
+
+    // The dice of the attack being carried out, reused for every attack
+    private final int[] attackerRolls = new int[3];
+    private final int[] defenderRolls = new int[2];
     
     /*
      *  Constructor for the class
@@ -20,15 +29,31 @@ public class Game {
      */
     public Game(){
         this.players = new ArrayList<>();
-        ProbTable.getOutcomes(1, 1);
+        this.listener = new ConsoleListener();
+        this.dice = new Dice();
         newGame();
-        // ArrayList<ArrayList<Integer>> table = ProbTable.makeDiceSet(3);
-        // for (ArrayList<Integer> rollSet : table) {
-        //     for (int roll : rollSet) {
-        //         System.out.print(roll + ", ");
-        //     }
-        //     System.out.print("\n");
-        // }
+    }
+
+    /*
+     *  Constructor for a game set up in code, with the given players on the premade board
+     *  Nothing is asked on the console, and what happens is only told to the given listener
+     */
+    public Game(ArrayList<Player> players, int maxTurns, GameEventListener listener){
+        this(players, new Board(players, 2), maxTurns, listener);
+    }
+
+    /*
+     *  Constructor for a game set up in code, on a board that is already made for the given players
+     */
+    public Game(ArrayList<Player> players, Board board, int maxTurns, GameEventListener listener){
+        if(maxTurns < 0){
+            throw new IllegalArgumentException("The turn limit can not be negative");
+        }
+        this.players = players;
+        this.board = board;
+        this.maxTurns = maxTurns;
+        this.listener = listener;
+        this.dice = new Dice();
     }
 
     /*
@@ -37,6 +62,7 @@ public class Game {
      *  When this function is done, a call to startGame will then begin the game
      */
     public final void newGame(){
+        Scanner scanner = new Scanner(System.in);
         int playerCount = 2;
         int currentPlayer = 0;
         // For all players, decide if they should be human or some AI
@@ -48,7 +74,8 @@ public class Game {
                 currentPlayer++;
             } else if(setPlayer.equals("n")) { // This player should be AI
                 // Maybe here do more logic to choose AI type?
-                this.players.add(new CompAggressive(currentPlayer+1, 8));
+                // Depth 8 can take seconds on a crowded board, so the search stops in time for the game to keep going
+                this.players.add(new CompAggressive(currentPlayer+1, 8, new TranspositionTable(16), 150));
                 currentPlayer++;
             } else {    
                 // Input not allowed, loop again
@@ -61,66 +88,90 @@ public class Game {
 
     /*
      *  Start this game, and play until completion
+     *  Returns the winner, or null if the turn limit was reached first
      */
-    public void startGame(){
+    public Player startGame(){
         // Do initial phase
+        if(replay != null){
+            replay.gameStarted(board, dice, turnCount);
+        }
 
         // Now start the game
         while(!isGameOver()){
-            // Whos turn is it?
-            int playerNumber = board.nextPlayer();
-            Player player = players.get(playerNumber-1); // Minus 1 because we save the number, not the index
-            System.out.println("\nThe turn of player " + playerNumber + " begins.");
-
-            // Print the board
-            System.out.println("The board looks like the following:");
-            printThisGame();
-
-            // Calculate reinforcements
-            int reinforcementsRemaining = board.countReinforcements(player);
-            
-            // Reinforce time!
-            System.out.println("\nReinforcement phase begins.");
-            while(reinforcementsRemaining > 0){ // While the player has reinforcements remaining, trap them here
-                Reinforcement reinforcement = player.reinforce(board, reinforcementsRemaining); // The player tries to do a reinforcement
-                // Use the method for checking if this reinforcement is legal
-                if(board.canReinforce(player, reinforcement, reinforcementsRemaining)){
-                    // Success!
-                    reinforcementsRemaining = reinforcementsRemaining - reinforcement.count;
-                    reinforcement.land.changeTroopCount(reinforcement.count);
-                    System.out.println("Placed " + reinforcement.count + " troops in " + reinforcement.land.getName());
-                } else {
-                    System.out.println("The specified reinforcement could not be carried out.");
-                    System.out.println("Please check that the specifiec troop amount is between 1 and the remaining amount, and that the targeted land is controlled by you.");
+            if(maxTurns > 0 && turnCount >= maxTurns){
+                if(replay != null){
+                    replay.gameEnded(-1);
+                }
+                listener.gameEnded(board, null, turnCount);
+                return null;
+            }
+            playTurn();
+        }
+        Player winner = getWinner();
+        if(replay != null){
+            replay.gameEnded(board.getPlayerIndex(winner));
+        }
+        listener.gameEnded(board, winner, turnCount);
+        return winner;
+    }
+
+    /*
+     *  Plays the turn of the next player, from reinforcement until they end their turn
+     */
+    public void playTurn(){
+        if(replay != null){
+            replay.turnStarted(board, dice, turnCount);
+        }
+        turnCount++;
+        // Whos turn is it?
+        int playerNumber = board.nextPlayer();
+        Player player = players.get(playerNumber-1); // Minus 1 because we save the number, not the index
+        listener.turnStarted(board, playerNumber);
+
+        // Calculate reinforcements
+        int reinforcementsRemaining = board.countReinforcements(player);
+        
+        // Reinforce time!
+        while(reinforcementsRemaining > 0){ // While the player has reinforcements remaining, trap them here
+            Reinforcement reinforcement = player.reinforce(board, reinforcementsRemaining); // The player tries to do a reinforcement
+            // Use the method for checking if this reinforcement is legal
+            if(board.canReinforce(player, reinforcement, reinforcementsRemaining)){
+                // Success!
+                reinforcementsRemaining = reinforcementsRemaining - reinforcement.count;
+                board.changeTroopCount(reinforcement.land.landID, reinforcement.count);
+                if(replay != null){
+                    replay.reinforcementPlaced(reinforcement.land.landID, reinforcement.count);
                 }
-            } // The logic inside this loop should make the loop terminate when the player has used all their reinforcements
-            // Make the player give a move
-            // If the move is NULL, it signifies an end to their turn.
-            System.out.println("\nAction phase begins.");
-            Move attemptMove = player.move(board);
-            while(attemptMove != null){ // Null signifies that the turn is done.
-                // Check that the move attempted is legal
-                if(board.isMoveLegal(attemptMove)){
-                    // Now identify the type of movement
-                    if(attemptMove.to.getController() == attemptMove.player){
-                        // This is a move order
-                        carryOutMovement(attemptMove);
-                        System.out.println("Your movement from " + attemptMove.from.getName() + " and to " + attemptMove.to.getName() + " with " + attemptMove.count + " troops was a success!");
-                    } else {
-                        // This is an attack order
-                        carryOutAttack(attemptMove);
-                        System.out.println("Your attack from " + attemptMove.from.getName() + " against " + attemptMove.to.getName() + " with " + attemptMove.count + " troops has concluded.");
-                    }
+                listener.reinforcementPlaced(board, player, reinforcement.land, reinforcement.count);
+            } else {
+                listener.reinforcementRejected(board, player, reinforcement);
+            }
+        } // The logic inside this loop should make the loop terminate when the player has used all their reinforcements
+        // Make the player give a move
+        // If the move is NULL, it signifies an end to their turn.
+        listener.actionPhaseStarted(board, player);
+        Move attemptMove = player.move(board);
+        while(attemptMove != null){ // Null signifies that the turn is done.
+            // Check that the move attempted is legal
+            if(board.isMoveLegal(attemptMove)){
+                // Now identify the type of movement
+                if(board.getController(attemptMove.to.landID) == attemptMove.player){
+                    // This is a move order
+                    carryOutMovement(attemptMove);
+                    listener.movementCarriedOut(attemptMove);
                 } else {
-                    // Move was not a legal movement or an attack, but neither was it null
-                    System.out.println("The specified move could not be executed. Try again.");
+                    // This is an attack order
+                    carryOutAttack(attemptMove);
+                    listener.attackConcluded(attemptMove);
                 }
-                System.out.println("What would you like to do now?");
-                attemptMove = player.move(board);
+            } else {
+                // Move was not a legal movement or an attack, but neither was it null
+                listener.moveRejected(board, attemptMove);
             }
-            System.out.println("The turn of player " + playerNumber + " is over.");
-            // Their turn is now over, after having reinforced, and having had the option to do as many moves as they want
+            attemptMove = player.move(board);
         }
+        listener.turnEnded(board, playerNumber);
+        // Their turn is now over, after having reinforced, and having had the option to do as many moves as they want
     }
 
     /*
@@ -128,8 +179,11 @@ public class Game {
      *  The board could be the one doing this, but having prints in any such case could force and AI to make prints when simulating.
      */
     public void carryOutMovement(Move move){
-        move.from.changeTroopCount(-move.count);
-        move.to.changeTroopCount(move.count);
+        board.changeTroopCount(move.from.landID, -move.count);
+        board.changeTroopCount(move.to.landID, move.count);
+        if(replay != null){
+            replay.movementCarriedOut(move.from.landID, move.to.landID, move.count);
+        }
     }
     
     /*
@@ -137,55 +191,24 @@ public class Game {
      *  The board could be the one doing this, but having prints in any such case could force and AI to make prints when simulating.
      */
     public void carryOutAttack(Move attack){
+        int from = attack.from.landID;
+        int to = attack.to.landID;
         // Roll their dice
-        ArrayList<Integer> attackerRolls = Board.rollDice(attack.count);
-        ArrayList<Integer> defenderRolls = Board.rollDice(Math.min(2,attack.to.getTroopCount()));
-        // Print out the result of the attackers rolls
-        System.out.print("The attacker rolled [");
-        for (int i = 0; i < attackerRolls.size(); i++) {
-            System.out.print(attackerRolls.get(i));
-            if(i < attackerRolls.size()-1){
-                System.out.print(", ");
-            }
-        }
-        // Print out the result of the defenders rolls
-        System.out.print("].\n");
-        System.out.print("The defender rolled [");
-        for (int i = 0; i < defenderRolls.size(); i++) {
-            System.out.print(defenderRolls.get(i));
-            if(i < defenderRolls.size()-1){
-                System.out.print(", ");
-            }
-        }
-        System.out.print("].\n");
-        // Now compare their rolls
-        int fights = defenderRolls.size();
-        int attacksWon = 0;
-        for (int i = 0; i < fights; i++) {
-            int highestAttacker = Collections.max(attackerRolls);
-            int highestAttackerIndex = attackerRolls.indexOf(highestAttacker);
-            int highestDefender = Collections.max(defenderRolls);
-            int highestDefenderIndex = defenderRolls.indexOf(highestDefender);
-            System.out.println("\nComparing attacker roll of " + highestAttacker + " to highest defender roll of " + highestDefender);
-            if(highestAttacker > highestDefender){
-                System.out.println("The attacker won!");
-                attacksWon++;
-            } else {
-                System.out.println("The defender won!");
-            }
-            attackerRolls.remove(highestAttackerIndex);
-            defenderRolls.remove(highestDefenderIndex);
+        int attackerDice = dice.roll(attackerRolls, attack.count);
+        int defenderDice = dice.roll(defenderRolls, Math.min(2,board.getTroops(to)));
+        if(replay != null){
+            replay.attackRolled(from, to, attackerRolls, attackerDice, defenderRolls, defenderDice);
         }
-        // Make the canges to the board
-        attack.from.changeTroopCount(-(fights-attacksWon));
-        attack.to.changeTroopCount(-attacksWon);
-        // Display the result
-        System.out.println("\nThe attacker lost " + (fights-attacksWon) + " troops and the defender lost " + attacksWon + " troops.");
-        if(attack.to.getTroopCount() == 0){
-            System.out.println("\nThe attacker has taken the land of " + attack.to.getName() + "!");
-            attack.from.changeTroopCount(-1);
-            attack.to.changeTroopCount(1);
-            attack.to.changeController(attack.player);
+        listener.diceRolled(attack, attackerRolls, attackerDice, defenderRolls, defenderDice);
+        // Now compare their rolls, highest against highest
+        int result = Battle.resolve(attackerRolls, attackerDice, defenderRolls, defenderDice);
+        int attackerLosses = Battle.attackerLosses(result);
+        int defenderLosses = Battle.defenderLosses(result);
+        // Make the canges to the board. If the land was taken, this also moves one troop in and changes its controller
+        board.applyOutcome(from, to, board.getPlayerIndex(attack.player), attackerLosses, defenderLosses);
+        listener.battleResolved(attack, attackerLosses, defenderLosses);
+        if(board.getController(to) == attack.player){
+            listener.landCaptured(attack);
         }
     }
 
@@ -203,10 +226,71 @@ public class Game {
         System.out.println(board.toString());
     }
 
+    public void setListener(GameEventListener listener){
+        this.listener = listener;
+    }
+
+    /*
+     *  Sets the dice to roll with from now on, fx seeded dice to play a game again exactly
+     */
+    public void setDice(Dice dice){
+        this.dice = dice;
+    }
+
+    public Dice getDice(){
+        return dice;
+    }
+
+    /*
+     *  Writes everything that happens from the next turn on to the given log, so the game can be played back, see ReplayPlayer
+     *  A log holds one game, so every game needs a new one. null stops writing
+     */
+    public void setReplayLog(ReplayLog replay){
+        this.replay = replay;
+    }
+
+    public ReplayLog getReplayLog(){
+        return replay;
+    }
+
     /*
      *  Defines and checks whether this game is still going or not
+     *  It is over when at most one player has any lands left
+     */
+    public boolean isGameOver(){
+        return board.getPlayersLeft() <= 1;
+    }
+
+    /*
+     *  Returns the only player with lands left, or null if the game is not won by anyone (yet)
+     */
+    public Player getWinner(){
+        if(board.getPlayersLeft() != 1){
+            return null;
+        }
+        for (int i = 0; i < board.getPlayerCount(); i++) {
+            if(!board.isEliminated(i)){
+                return board.getPlayer(i);
+            }
+        }
+        return null;
+    }
+
+    /*
+     *  The number of turns played so far, over all players
+     */
+    public int getTurnCount(){
+        return turnCount;
+    }
+
+    /*
+     *  Only for putting a saved game back, see GameSnapshot
      */
-    private boolean isGameOver(){
-        return (board.getControlledLandsCount(players.get(0)) == 0 || board.getControlledLandsCount(players.get(1)) == 0);
+    void setTurnCount(int turnCount){
+        this.turnCount = turnCount;
+    }
+
+    public Board getBoard(){
+        return board;
     }
 }
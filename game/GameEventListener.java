@@ -0,0 +1,70 @@
+package game;
+
+import containers.*;
+import players.*;
+
+/*
+ *  Gets told everything that happens in a Game, as it happens
+ *  The game itself never prints or formats anything. It only calls these methods with the plain facts,
+ *  and it is up to the listener whether they are printed, kept, or thrown away.
+ *
+ *  ConsoleListener prints the game as it has always been printed, NoOpListener ignores everything,
+ *  and BufferedListener keeps the printed text in memory until asked for it.
+ *
+ *  A listener is called on the thread playing the game, and must be done with any array it is given before it returns,
+ *  as the game reuses its arrays for the next attack.
+ */
+public interface GameEventListener {
+
+    /*
+     *  A player starts their turn, and is about to reinforce
+     */
+    void turnStarted(Board board, int playerNumber);
+
+    void reinforcementPlaced(Board board, Player player, Land land, int count);
+
+    /*
+     *  The player asked for a reinforcement that is not allowed, and will be asked again
+     */
+    void reinforcementRejected(Board board, Player player, Reinforcement reinforcement);
+
+    /*
+     *  The player is done reinforcing, and will now attack and move
+     */
+    void actionPhaseStarted(Board board, Player player);
+
+    /*
+     *  The dice of an attack are rolled, in the order they were rolled
+     *  The defender rolls one die for every troop they have, up to two
+     */
+    void diceRolled(Move attack, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice);
+
+    /*
+     *  The dice of an attack are compared, and the losses are taken off the board
+     */
+    void battleResolved(Move attack, int attackerLosses, int defenderLosses);
+
+    /*
+     *  The defender of an attack lost their last troop, and the attacker moved in
+     */
+    void landCaptured(Move attack);
+
+    /*
+     *  An attack is over, whether the land was taken or not
+     */
+    void attackConcluded(Move attack);
+
+    void movementCarriedOut(Move movement);
+
+    /*
+     *  The player asked for a move that is not allowed, and will be asked again
+     */
+    void moveRejected(Board board, Move move);
+
+    void turnEnded(Board board, int playerNumber);
+
+    /*
+     *  The game is over, either won by the given player, or a draw at the turn limit if the winner is null
+     */
+    void gameEnded(Board board, Player winner, int turns);
+}
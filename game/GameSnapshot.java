@@ -0,0 +1,214 @@
+package game;
+import java.util.*;
+
+import players.*;
+
+/**
+ * A saved game: the owner and troops of every land, whose turn it is, how many turns have been played, and the state of the dice.
+ * A game can be put back exactly as it was, fx to resume a long run of AI games, or to start many workers from the same position.
+ *
+ * Players are not saved, only their seats. A game is put back with the same players in the same order,
+ * and on the same map, which is checked with the fingerprint of the map.
+ *
+ * The bytes are:
+ *  - the magic number and the version, as 4 bytes and a varint
+ *  - the fingerprint of the map, as 8 bytes, then the land count, player count and lands per reinforcement, as varints
+ *  - the player turn and the turn count, as varints, and the state of the dice, as 8 bytes
+ *  - for every land, troops * (player count + 1) + owner + 1, as a varint.
+ *    With few players, a land with up to about 40 troops takes a single byte
+ *
+ * A snapshot never changes once made, so it can be shared by any number of threads.
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x50534E52;    // "RNSP" when read as little endian bytes
+    private static final int VERSION = 1;
+
+    private final byte[] data;
+    private final long mapFingerprint;
+    private final int landCount;
+    private final int playerCount;
+    private final int landCountForReinforcement;
+    private final int playerTurn;
+    private final int turnCount;
+    private final long diceState;
+    private final int landsStart;   // where the lands start in data
+
+    private GameSnapshot(byte[] data){
+        this.data = data;
+        VarIntBuffer buffer = new VarIntBuffer(data, 0, data.length);
+        if(data.length < 4 || buffer.readInt() != MAGIC){
+            throw new IllegalArgumentException("The bytes are not a game snapshot");
+        }
+        int version = buffer.readVarInt();
+        if(version != VERSION){
+            throw new IllegalArgumentException("The snapshot is of version " + version + ", but only version " + VERSION + " can be read");
+        }
+        mapFingerprint = buffer.readLong();
+        landCount = buffer.readVarInt();
+        playerCount = buffer.readVarInt();
+        landCountForReinforcement = buffer.readVarInt();
+        playerTurn = buffer.readVarInt();
+        turnCount = buffer.readVarInt();
+        diceState = buffer.readLong();
+        landsStart = buffer.position();
+        if(landCount < 0 || playerCount < 1){
+            throw new IllegalArgumentException("The snapshot has a broken header");
+        }
+    }
+
+    /*
+     *  Saves the state of the game
+     */
+    public static GameSnapshot of(Game game){
+        return of(game.getBoard(), game.getDice(), game.getTurnCount());
+    }
+
+    /*
+     *  Saves the state of a board, with the dice and turn count of the game it is in
+     */
+    public static GameSnapshot of(Board board, Dice dice, int turnCount){
+        int landCount = board.getBoardSize();
+        int playerCount = board.getPlayerCount();
+        VarIntBuffer buffer = new VarIntBuffer(48 + 2 * landCount);
+        buffer.writeInt(MAGIC);
+        buffer.writeVarInt(VERSION);
+        buffer.writeLong(board.getTopology().getFingerprint());
+        buffer.writeVarInt(landCount);
+        buffer.writeVarInt(playerCount);
+        buffer.writeVarInt(board.getLandCountForReinforcement());
+        buffer.writeVarInt(board.getPlayerTurn());
+        buffer.writeVarInt(turnCount);
+        buffer.writeLong(dice.getState());
+        for (int land = 0; land < landCount; land++) {
+            buffer.writeVarLong((long) board.getTroops(land) * (playerCount + 1) + board.getOwner(land) + 1);
+        }
+        return new GameSnapshot(buffer.toByteArray());
+    }
+
+    /*
+     *  Reads a snapshot from the bytes of toBytes
+     *  Throws an IllegalArgumentException if the bytes are not a snapshot
+     */
+    public static GameSnapshot fromBytes(byte[] bytes){
+        return new GameSnapshot(bytes.clone());
+    }
+
+    public byte[] toBytes(){
+        return data.clone();
+    }
+
+    /*
+     *  The size of the snapshot in bytes
+     */
+    public int size(){
+        return data.length;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Putting the game back
+
+
+    /*
+     *  Puts the game back as it was when the snapshot was made, with the board, the dice and the turn count
+     *  The game must have the same players, on the same map
+     */
+    public void restore(Game game){
+        restore(game.getBoard());
+        game.getDice().setState(diceState);
+        game.setTurnCount(turnCount);
+    }
+
+    /*
+     *  Puts the board back as it was when the snapshot was made
+     *  The board must have the same number of players, on the same map
+     */
+    public void restore(Board board){
+        if(board.getTopology().getFingerprint() != mapFingerprint || board.getBoardSize() != landCount){
+            throw new IllegalArgumentException("The snapshot was made on another map");
+        }
+        if(board.getPlayerCount() != playerCount){
+            throw new IllegalArgumentException("The snapshot was made with " + playerCount + " players, but the board has " + board.getPlayerCount());
+        }
+        int[] owners = new int[landCount];
+        int[] troops = new int[landCount];
+        VarIntBuffer buffer = new VarIntBuffer(data, landsStart, data.length - landsStart);
+        int seats = playerCount + 1;
+        for (int land = 0; land < landCount; land++) {
+            long value = buffer.readVarLong();
+            owners[land] = (int) (value % seats) - 1;
+            troops[land] = (int) (value / seats);
+        }
+        board.setState(owners, troops, playerTurn);
+    }
+
+    /*
+     *  Makes a new board on the map, with the given players in the same seats, as it was when the snapshot was made
+     */
+    public Board toBoard(ArrayList<Player> players, MapTopology map){
+        Board board = new Board(players, landCountForReinforcement, map, null);
+        restore(board);
+        return board;
+    }
+
+    /*
+     *  Makes a new game on the map, with the given players in the same seats, as it was when the snapshot was made
+     */
+    public Game toGame(ArrayList<Player> players, MapTopology map, int maxTurns, GameEventListener listener){
+        Game game = new Game(players, toBoard(players, map), maxTurns, listener);
+        game.setDice(toDice());
+        game.setTurnCount(turnCount);
+        return game;
+    }
+
+    /*
+     *  Dice in the state they were in, so they roll the same as the dice of the game would have
+     */
+    public Dice toDice(){
+        Dice dice = new Dice(0);
+        dice.setState(diceState);
+        return dice;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - What is in it
+
+
+    public long getMapFingerprint(){
+        return mapFingerprint;
+    }
+
+    public int getLandCount(){
+        return landCount;
+    }
+
+    public int getPlayerCount(){
+        return playerCount;
+    }
+
+    public int getPlayerTurn(){
+        return playerTurn;
+    }
+
+    public int getTurnCount(){
+        return turnCount;
+    }
+
+    public long getDiceState(){
+        return diceState;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(other == this)
+            return true;
+        if(!(other instanceof GameSnapshot))
+            return false;
+        return Arrays.equals(((GameSnapshot) other).data, data);
+    }
+
+    @Override
+    public int hashCode(){
+        return Arrays.hashCode(data);
+    }
+}
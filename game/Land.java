@@ -4,25 +4,26 @@ import java.util.*;
 import containers.*;
 import players.*;
 
+/*
+ *  A Land is a view of one land on a Board
+ *  It holds no state of its own. The map information comes from the MapTopology, and the owner and troops from the arrays in the Board
+ *  This means that changing a Land changes the Board it belongs to
+ */
 public class Land {
     
-    public int landID;
-    private ArrayList<Land> borderingLand;
-    private Player controller;
-    private int troopCount;
-    private String name;
+    public final int landID;
+    private final Board board;
+    private final MapTopology topology;
 
     // Coordinates for drawing the board, and for deciding neighbours
     public Coordinate coords;
 
 
-    public Land(String name, int landID, Player controller, Coordinate coords){
-        this.borderingLand = new ArrayList<>();
-        this.name = name;
-        this.troopCount = 1;
-        this.controller = controller;
-        this.coords = coords;
+    Land(Board board, int landID){
+        this.board = board;
+        this.topology = board.getTopology();
         this.landID = landID;
+        this.coords = new Coordinate(topology.getX(landID), topology.getY(landID));
     }
 
 
@@ -31,7 +32,7 @@ public class Land {
      *  Uses a simple loop with a short-circuit to check
      */
     public boolean hasNeighboringLand(Land neighbour){
-        return borderingLand.contains(neighbour);
+        return topology.isNeighbour(landID, neighbour.landID);
     }
 
     /*
@@ -52,66 +53,34 @@ public class Land {
 
 
     /*
-     *  Implements a breadth-first-search to return a hashset of all lands which are connected to this land
-     *  Can terminate early on a successful find
-     *  Does not return the set of connected land, use connectedLand().contains() if both check and set is needed
+     *  Checks whether troops can be moved from this land to the given land, through lands of the same controller
      *  If this land and the parameter does not share owner, this will always be false
+     *  The board keeps track of its zones, so this is a lookup, not a search
      */
     public boolean isConnectedTo(Land dest){
-        boolean isConnectedTo = false;
-        ArrayList<Land> visited = new ArrayList<>();
-        Queue<Land> q = new LinkedList<>();
-        // Add the starting land to queue and visited set
-        q.add(this);
-        visited.add(this);
-        // Go as long as the queue is not empty
-        while(!q.isEmpty() && !isConnectedTo){
-            // Take the head of the queue. This land is always already marked as visited
-            Land currentLand = q.remove();
-            // Get all neighbours for this land
-            for (Land neighbour : currentLand.getNeighbours()) {
-                // If the neighbour has already been visited, disregard it
-                // If not, and it is owned by the same player as this land, add it to the queue and to the visited list
-                if(!visited.contains(neighbour) && neighbour.getController()==this.getController()){
-                    q.add(neighbour);
-                    visited.add(neighbour);
-                    if(neighbour == dest){
-                        isConnectedTo = true;
-                    }
-                }
-            }
-        }
-        return isConnectedTo;
+        return board.isConnected(landID, dest.landID);
     }
 
     /*
-     *  Implements a breadth-first-search to return a hashset of all lands which are connected to this land
+     *  Returns all lands which are connected to this land, through lands of the same controller
      *  Does not include this land in the list
      */
     public ArrayList<Land> getAllConnectedLand(){
-        ArrayList<Land> visited = new ArrayList<>();
-        Queue<Land> q = new LinkedList<>();
-        // Add the starting land to queue and visited set
-        q.add(this);
-        visited.add(this);
-        // Go as long as the queue is not empty
-        while(!q.isEmpty()){
-            // Take the head of the queue. This land is always already marked as visited
-            Land currentLand = q.remove();
-            // Get all neighbours for this land
-            for (Land neighbour : currentLand.getNeighbours()) {
-                // If the neighbour has already been visited, disregard it
-                // If not, and it is owned by the same player as this land, add it to the queue and to the visited list
-                if(!visited.contains(neighbour) && neighbour.getController()==this.getController()){
-                    q.add(neighbour);
-                    visited.add(neighbour);
-                }
+        ArrayList<Land> connected = new ArrayList<>();
+        int zone = board.getZoneId(landID);
+        if(zone == -1){
+            return connected;
+        }
+        int size = board.getZoneSize(zone);
+        for (int i = 0; i < size; i++) {
+            int land = board.getZoneLand(zone, i);
+            // This land itself is never added.
+            // This is only because of how the game works, which spares a lot of headache if we do not have the option of making loops of actions.
+            if(land != landID){
+                connected.add(board.getLand(land));
             }
         }
-        // Now remove this land from the list of visited lands.
-        // This is only because of how the game works, which spares a lot of headache if we do not have the option of making loops of actions.
-        visited.remove(this);
-        return visited; // Return all seen lands
+        return connected;
     }
 
     /*
@@ -120,7 +89,7 @@ public class Land {
      *  Otherwise speed it up by providing one
      */
     public int getConnectedMoveableTroopCount(ArrayList<Land> connectedLands){
-        int count = this.troopCount-1;
+        int count = this.getTroopCount()-1;
         if(connectedLands == null){
             connectedLands = this.getAllConnectedLand();
         }
@@ -136,9 +105,10 @@ public class Land {
      *  Works exactly as a copy of the list of neighbours. The lands are still their same references, its just this list not being the same list as the one in the class
      */
     public ArrayList<Land> getNeighbours(){
-        ArrayList<Land> list = new ArrayList<>();
-        for (Land land : borderingLand) {
-            list.add(land);
+        int neighbourCount = topology.getNeighbourCount(landID);
+        ArrayList<Land> list = new ArrayList<>(neighbourCount);
+        for (int i = 0; i < neighbourCount; i++) {
+            list.add(board.getLand(topology.getNeighbour(landID, i)));
         }
         return list;
     }
@@ -149,37 +119,35 @@ public class Land {
      * @return a list of all hostile neighbours.
      */
     public ArrayList<Land> getHostileNeighbours(){
-        ArrayList<Land> hostileNeighbours = this.getNeighbours();
-        for(Land l : hostileNeighbours){    // goes through all neighbours of this Land
-            if(l.getController() == this.controller){   // the neighbour is friendly
-                hostileNeighbours.remove(l);
+        int controller = board.getOwner(landID);
+        int count = board.getHostileNeighbourCount(landID);
+        ArrayList<Land> hostileNeighbours = new ArrayList<>(count);
+        for (int i = 0; i < topology.getNeighbourCount(landID) && hostileNeighbours.size() < count; i++) {    // goes through the neighbours of this Land, until all hostile ones are found
+            int neighbour = topology.getNeighbour(landID, i);
+            if(board.getOwner(neighbour) != controller){   // the neighbour is hostile
+                hostileNeighbours.add(board.getLand(neighbour));
             }
         }
         return hostileNeighbours;
     }
 
     public boolean isLandAttackTarget(Land target, Player attacker){
-        ArrayList<Land> neighbours = this.getNeighbours();
-        return (neighbours.contains(target) && target.getController() != attacker);
+        return (hasNeighboringLand(target) && target.getController() != attacker);
     }
 
     /*
      *  Returns the controller of this land
      */
     public Player getController(){
-        return this.controller;
+        return board.getController(landID);
     }
 
 
+    /*
+     *  Whether this land borders a land of someone else. The board counts the hostile neighbours of every land, so this is a lookup
+     */
     public boolean hasEnemyNeighbour(){
-        boolean found = false;
-        Iterator<Land> neighbourListIterable = borderingLand.iterator(); // Make iterator
-        while(!found && neighbourListIterable.hasNext()){
-            if (neighbourListIterable.next().controller != this.controller){
-                found = true;
-            }
-        }
-        return found;
+        return board.getHostileNeighbourCount(landID) > 0;
     }
 
     /*
@@ -187,15 +155,11 @@ public class Land {
      * Positive number increases the troop count, whilst negative will decrease it
      */
     public void changeTroopCount(int change){
-        this.troopCount = this.troopCount + change;
+        board.changeTroopCount(landID, change);
     }
 
     public void changeController(Player newController){
-        this.controller = newController;
-    }
-
-    public void addNeighbour(Land neighbour){
-        borderingLand.add(neighbour);
+        board.changeController(landID, board.getPlayerIndex(newController));
     }
 
 
@@ -203,11 +167,11 @@ public class Land {
      * Returns the troop count of this land
      */
     public int getTroopCount(){
-        return this.troopCount;
+        return board.getTroops(landID);
     }
 
     public String getName(){
-        return this.name;
+        return topology.getName(landID);
     }
 
 
@@ -229,17 +193,25 @@ public class Land {
 		if(!(other instanceof Land))
 			return false;
 		Land otherLand = (Land) other;
-        if(otherLand.controller != this.controller) // This is references matched, which is correct behavior for checking player equality
+        if(otherLand.getController() != this.getController()) // This is references matched, which is correct behavior for checking player equality
             return false;
-        if(otherLand.troopCount != this.troopCount)
+        if(otherLand.getTroopCount() != this.getTroopCount())
             return false;
-        if(!otherLand.name.equals(this.name))
+        if(!otherLand.getName().equals(this.getName()))
             return false;
         if(otherLand.landID != this.landID)
             return false;
-        if(otherLand.borderingLand.size() != this.borderingLand.size())
+        if(otherLand.topology.getNeighbourCount(landID) != this.topology.getNeighbourCount(landID))
             return false;
 
         return true;
     }
+
+    /*
+     *  Only uses the id, as that is the part of the equality that never changes
+     */
+    @Override
+    public int hashCode(){
+        return landID;
+    }
 }
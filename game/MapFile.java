@@ -0,0 +1,179 @@
+package game;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Reads and writes maps in a compact binary format, so a large map can be made once, and loaded by every worker in milliseconds.
+ *
+ * The file is little endian, and laid out exactly like the arrays of a MapTopology:
+ *  - a header of 8 ints: the magic number, the version, the land count, the length of the neighbour array,
+ *    the region count (0 if the map has no regions), the length of the name bytes, and two ints that are always 0
+ *  - the x-coordinates and the y-coordinates of every land
+ *  - the neighbour offsets and the neighbours, in the CSR form of MapTopology
+ *  - the region of every land, only if the region count is above 0
+ *  - the offset of the name of every land into the name bytes, plus one past the last name
+ *  - the names, as UTF-8 bytes
+ *
+ * Loading maps the file into memory, and copies each array out in one go, so there is no parsing of single lands.
+ * The names are left in the mapped file, and made into Strings only when asked for.
+ */
+public final class MapFile {
+
+    private static final int MAGIC = 0x50414D52;    // "RMAP" in little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 8;
+
+    private MapFile(){
+    }
+
+    /*
+     *  Writes the map to the file, replacing anything already there
+     */
+    public static void write(MapTopology topology, Path path) throws IOException {
+        int landCount = topology.getLandCount();
+        int regionCount = topology.getRegionCount();
+        int neighbourTotal = 0;
+        for (int land = 0; land < landCount; land++) {
+            neighbourTotal += topology.getNeighbourCount(land);
+        }
+        byte[][] names = new byte[landCount][];
+        int nameTotal = 0;
+        for (int land = 0; land < landCount; land++) {
+            names[land] = topology.getName(land).getBytes(StandardCharsets.UTF_8);
+            nameTotal += names[land].length;
+        }
+        long ints = HEADER_INTS + 2L * landCount + (landCount + 1) + neighbourTotal
+            + (regionCount > 0 ? landCount : 0) + (landCount + 1);
+        long size = 4 * ints + nameTotal;
+        if(size > Integer.MAX_VALUE){
+            throw new IOException("A map of " + size + " bytes is too large for one file");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(landCount).putInt(neighbourTotal)
+            .putInt(regionCount).putInt(nameTotal).putInt(0).putInt(0);
+        for (int land = 0; land < landCount; land++) {
+            buffer.putInt(topology.getX(land));
+        }
+        for (int land = 0; land < landCount; land++) {
+            buffer.putInt(topology.getY(land));
+        }
+        int offset = 0;
+        for (int land = 0; land < landCount; land++) {
+            buffer.putInt(offset);
+            offset += topology.getNeighbourCount(land);
+        }
+        buffer.putInt(offset);
+        for (int land = 0; land < landCount; land++) {
+            for (int i = 0; i < topology.getNeighbourCount(land); i++) {
+                buffer.putInt(topology.getNeighbour(land, i));
+            }
+        }
+        if(regionCount > 0){
+            for (int land = 0; land < landCount; land++) {
+                buffer.putInt(topology.getRegion(land));
+            }
+        }
+        offset = 0;
+        for (int land = 0; land < landCount; land++) {
+            buffer.putInt(offset);
+            offset += names[land].length;
+        }
+        buffer.putInt(offset);
+        for (int land = 0; land < landCount; land++) {
+            buffer.put(names[land]);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /*
+     *  Loads a map written by write
+     *  Throws an IOException if the file is not a map of this version, or does not hold together
+     */
+    public static MapTopology load(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE){
+                throw new IOException(path + " is too large to be a map");
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if(file.remaining() < 4 * HEADER_INTS || file.getInt(0) != MAGIC){
+            throw new IOException(path + " is not a map file");
+        }
+        if(file.getInt(4) != VERSION){
+            throw new IOException(path + " is a map of version " + file.getInt(4) + ", but only version " + VERSION + " can be read");
+        }
+        int landCount = file.getInt(8);
+        int neighbourTotal = file.getInt(12);
+        int regionCount = file.getInt(16);
+        int nameTotal = file.getInt(20);
+        if(landCount < 0 || neighbourTotal < 0 || regionCount < 0 || nameTotal < 0){
+            throw new IOException(path + " has a broken header");
+        }
+        long ints = HEADER_INTS + 2L * landCount + (landCount + 1) + neighbourTotal
+            + (regionCount > 0 ? landCount : 0) + (landCount + 1);
+        if(4 * ints + nameTotal != file.remaining()){
+            throw new IOException(path + " should be " + (4 * ints + nameTotal) + " bytes long, but is " + file.remaining());
+        }
+
+        IntBuffer data = file.asIntBuffer();
+        data.position(HEADER_INTS);
+        int[] xs = read(data, landCount);
+        int[] ys = read(data, landCount);
+        int[] neighbourStart = read(data, landCount + 1);
+        int[] neighbours = read(data, neighbourTotal);
+        int[] regions = (regionCount > 0 ? read(data, landCount) : null);
+        int[] nameOffsets = read(data, landCount + 1);
+        file.position((int) (4 * ints));
+        ByteBuffer nameBytes = file.slice();
+
+        // A broken file would otherwise only show up as odd errors in the middle of a game
+        checkOffsets(path, "neighbour", neighbourStart, neighbourTotal);
+        checkOffsets(path, "name", nameOffsets, nameTotal);
+        for (int neighbour : neighbours) {
+            if(neighbour < 0 || neighbour >= landCount){
+                throw new IOException(path + " has a neighbour " + neighbour + " that is not a land");
+            }
+        }
+        if(regions != null){
+            for (int region : regions) {
+                if(region < 0 || region >= regionCount){
+                    throw new IOException(path + " has a land in region " + region + ", but only " + regionCount + " regions");
+                }
+            }
+        }
+        return new MapTopology(new String[landCount], nameBytes, nameOffsets, xs, ys, neighbourStart, neighbours, regions);
+    }
+
+    private static int[] read(IntBuffer data, int length){
+        int[] array = new int[length];
+        data.get(array);
+        return array;
+    }
+
+    private static void checkOffsets(Path path, String kind, int[] offsets, int total) throws IOException {
+        if(offsets[0] != 0 || offsets[offsets.length-1] != total){
+            throw new IOException(path + " has " + kind + " offsets that do not cover its " + kind + "s");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if(offsets[i] < offsets[i-1]){
+                throw new IOException(path + " has " + kind + " offsets that go backwards at land " + (i-1));
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package game;
+import java.util.*;
+
+import containers.*;
+import players.*;
+
+/*
+ *  Makes random maps of any size, for playing on something other than the premade board, and for testing AIs on huge maps
+ *  The same seed and land count always give the same map, and with the same player count also the same starting owners.
+ *
+ *  A map grows out from a single land at (0,0). Every new land is a 3x3 tile put right next to a land already placed,
+ *  3 away on one axis and at most 1 away on the other, so the map is always in one piece.
+ *  Whether a spot is free is a lookup in a spatial hash, and lands that have no free spot left around them are never picked again,
+ *  so the time per land stays the same however large the map gets.
+ */
+public final class MapGenerator {
+
+    private MapGenerator(){
+    }
+
+    /*
+     *  Makes a map with the given number of lands. The lands are named by their id
+     */
+    public static MapTopology generateMap(long seed, int landCount){
+        return generateMap(new SplittableRandom(seed), landCount);
+    }
+
+    /*
+     *  Gives every player the same number of lands, give or take one, at random places of the map
+     *  Returns the index of the starting controller of each land
+     */
+    public static int[] generateOwners(long seed, int landCount, int playerCount){
+        return generateOwners(new SplittableRandom(seed), landCount, playerCount);
+    }
+
+    /**
+     * Makes a board on a new random map, with the lands shared out between the players.
+     * Every land starts with 1 troop.
+     * @param seed - the seed of both the map and the owners
+     * @param players - the players of the game, in turn order
+     * @param landCountForReinforcement - the number of land required to gain an additional reinforcement
+     * @param landCount - the number of lands of the map
+     * @return the new board
+     */
+    public static Board generateBoard(long seed, ArrayList<Player> players, int landCountForReinforcement, int landCount){
+        if(landCount < players.size()){
+            throw new IllegalArgumentException("A map of " + landCount + " lands can not give every one of " + players.size() + " players a land");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        MapTopology topology = generateMap(random, landCount);
+        return new Board(players, landCountForReinforcement, topology, generateOwners(random, landCount, players.size()));
+    }
+
+    private static MapTopology generateMap(SplittableRandom random, int landCount){
+        if(landCount < 1){
+            throw new IllegalArgumentException("A map needs at least one land");
+        }
+        int[] xs = new int[landCount];
+        int[] ys = new int[landCount];
+        SpatialHash grid = new SpatialHash(xs, ys, landCount);
+        // The lands that may still have a free spot next to them
+        int[] open = new int[landCount];
+        int openCount = 0;
+        // The 12 spots next to a land, and the lands around them
+        int[] candidateX = new int[12];
+        int[] candidateY = new int[12];
+        int[] nearby = new int[25];
+
+        // First land is always (0,0)
+        grid.add(0);
+        open[openCount++] = 0;
+        int placed = 1;
+        while(placed < landCount){
+            // Pick a random land already made
+            int pick = random.nextInt(openCount);
+            int land = open[pick];
+            // Every spot with the large offset of 3 on one axis and a small offset of -1, 0 or +1 on the other shares an edge with the land
+            int nearbyCount = grid.findNearby(xs[land], ys[land], nearby);
+            int candidates = 0;
+            for (int large = -3; large <= 3; large += 6) {
+                for (int small = -1; small <= 1; small++) {
+                    if(isFree(grid, nearby, nearbyCount, xs[land] + large, ys[land] + small)){
+                        candidateX[candidates] = xs[land] + large;
+                        candidateY[candidates] = ys[land] + small;
+                        candidates++;
+                    }
+                    if(isFree(grid, nearby, nearbyCount, xs[land] + small, ys[land] + large)){
+                        candidateX[candidates] = xs[land] + small;
+                        candidateY[candidates] = ys[land] + large;
+                        candidates++;
+                    }
+                }
+            }
+            if(candidates == 0){
+                // Lands are never removed, so this land is surrounded for good
+                open[pick] = open[--openCount];
+                continue;
+            }
+            int chosen = random.nextInt(candidates);
+            xs[placed] = candidateX[chosen];
+            ys[placed] = candidateY[chosen];
+            grid.add(placed);
+            open[openCount++] = placed;
+            placed++;
+        }
+
+        // The neighbours are found through the same spatial hash
+        String[] names = new String[landCount];
+        for (int i = 0; i < landCount; i++) {
+            names[i] = Integer.toString(i);
+        }
+        return MapTopology.fromGrid(names, xs, ys, grid);
+    }
+
+    /*
+     *  Whether a land fits at the spot, without overlapping any of the nearby lands
+     */
+    private static boolean isFree(SpatialHash grid, int[] nearby, int nearbyCount, int x, int y){
+        for (int i = 0; i < nearbyCount; i++) {
+            if(Math.abs(grid.getX(nearby[i]) - x) <= 2 && Math.abs(grid.getY(nearby[i]) - y) <= 2){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] generateOwners(SplittableRandom random, int landCount, int playerCount){
+        if(playerCount < 1){
+            throw new IllegalArgumentException("A game needs at least one player");
+        }
+        // Deal the lands out in turn, then shuffle them
+        int[] owners = new int[landCount];
+        for (int i = 0; i < landCount; i++) {
+            owners[i] = i % playerCount;
+        }
+        for (int i = landCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = owners[i];
+            owners[i] = owners[j];
+            owners[j] = swap;
+        }
+        return owners;
+    }
+}
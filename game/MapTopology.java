@@ -0,0 +1,309 @@
+package game;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import containers.*;
+
+/**
+ * The immutable graph of a map: land ids, names, coordinates and adjacency.
+ * A MapTopology is built once and then shared by every Board playing on that map,
+ * including all copies an AI makes while searching. Nothing in here ever changes during a game,
+ * so only the per-game state (owners and troops) has to live in the Board.
+ *
+ * Land ids are the indices 0 .. getLandCount()-1.
+ * Adjacency is stored in CSR form: the neighbours of land i are
+ * neighbours[neighbourStart[i]] .. neighbours[neighbourStart[i+1]-1].
+ *
+ * A map may also split its lands into regions, fx continents. Regions are numbered from 0, and a map without them has none.
+ * Maps loaded from a file keep their names as UTF-8 bytes, and only make a String of a name the first time it is asked for,
+ * see MapFile.
+ */
+public final class MapTopology {
+
+    private final String[] names;       // for maps loaded from a file, filled in as the names are asked for
+    private final ByteBuffer nameBytes; // the names of a map loaded from a file, or null
+    private final int[] nameOffsets;    // where the name of each land starts in nameBytes, of length landCount+1
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] neighbourStart;
+    private final int[] neighbours;
+    private final int[] regions;        // the region of each land, or null if the map has no regions
+    private final int regionCount;
+
+    // Worked out the first time it is asked for, see getFingerprint. 0 until then
+    private volatile long fingerprint;
+
+    // Built the first time lands are looked up by where they are, see getSpatialHash
+    private volatile SpatialHash spatialHash;
+
+    // Built on the first lookup by name. Volatile so a fully built map is published safely between threads
+    private volatile HashMap<String, Integer> idsByName;
+
+    /**
+     * Creates a topology directly from its arrays.
+     * The arrays are owned by the topology afterwards, and must not be changed by the caller.
+     * @param names - the name of each land
+     * @param xs - the x-coordinate of the center of each land
+     * @param ys - the y-coordinate of the center of each land
+     * @param neighbourStart - CSR offsets into neighbours, of length landCount+1
+     * @param neighbours - the concatenated neighbour lists of all lands
+     */
+    public MapTopology(String[] names, int[] xs, int[] ys, int[] neighbourStart, int[] neighbours){
+        this(names, xs, ys, neighbourStart, neighbours, null);
+    }
+
+    /**
+     * Creates a topology with regions directly from its arrays.
+     * The arrays are owned by the topology afterwards, and must not be changed by the caller.
+     * @param regions - the region of each land, from 0 and up, or null if the map has no regions
+     */
+    public MapTopology(String[] names, int[] xs, int[] ys, int[] neighbourStart, int[] neighbours, int[] regions){
+        this(names, null, null, xs, ys, neighbourStart, neighbours, regions);
+    }
+
+    /*
+     *  Creates a topology whose names are either given as Strings, or as UTF-8 bytes with the offset of each name
+     */
+    MapTopology(String[] names, ByteBuffer nameBytes, int[] nameOffsets, int[] xs, int[] ys, int[] neighbourStart, int[] neighbours, int[] regions){
+        int landCount = xs.length;
+        if(names.length != landCount || ys.length != landCount || neighbourStart.length != landCount+1
+            || (nameOffsets != null && nameOffsets.length != landCount+1) || (regions != null && regions.length != landCount)){
+            throw new IllegalArgumentException("Topology arrays do not describe the same number of lands");
+        }
+        if(neighbourStart[landCount] != neighbours.length){
+            throw new IllegalArgumentException("Neighbour offsets do not match the neighbour array");
+        }
+        int highestRegion = -1;
+        if(regions != null){
+            for (int region : regions) {
+                if(region < 0){
+                    throw new IllegalArgumentException("Regions are numbered from 0, not " + region);
+                }
+                highestRegion = Math.max(highestRegion, region);
+            }
+        }
+        this.names = names;
+        this.nameBytes = nameBytes;
+        this.nameOffsets = nameOffsets;
+        this.xs = xs;
+        this.ys = ys;
+        this.neighbourStart = neighbourStart;
+        this.neighbours = neighbours;
+        this.regions = regions;
+        this.regionCount = highestRegion + 1;
+    }
+
+    /**
+     * Builds a topology from land centers, where every land is a 3x3 square around its center.
+     * Two lands are neighbours if they share an edge, meaning their centers lie exactly 3 apart on one axis,
+     * and at most 2 apart on the other. Touching only at the corners does not make them neighbours.
+     * The lands are looked up through a spatial hash, so this takes time linear in the number of lands.
+     * @param names - the name of each land, indexed by land id
+     * @param coords - the center of each land, indexed by land id
+     * @return the topology of these lands
+     */
+    public static MapTopology fromCoordinates(String[] names, Coordinate[] coords){
+        int landCount = names.length;
+        int[] xs = new int[landCount];
+        int[] ys = new int[landCount];
+        for (int i = 0; i < landCount; i++) {
+            xs[i] = coords[i].x;
+            ys[i] = coords[i].y;
+        }
+        // Every land is put in a bucket by its center, so its neighbours are found by looking in the buckets around it
+        SpatialHash grid = new SpatialHash(xs, ys, landCount);
+        for (int i = 0; i < landCount; i++) {
+            grid.add(i);
+        }
+        return fromGrid(names.clone(), xs, ys, grid);
+    }
+
+    /*
+     *  Builds the topology of lands that have all been added to the spatial hash
+     *  The arrays are owned by the topology afterwards
+     */
+    static MapTopology fromGrid(String[] names, int[] xs, int[] ys, SpatialHash grid){
+        int landCount = names.length;
+        // First count the neighbours of each land, so the CSR arrays can be sized exactly
+        int[] found = new int[8];
+        int[] start = new int[landCount+1];
+        for (int i = 0; i < landCount; i++) {
+            start[i+1] = start[i] + grid.findNeighbours(i, found);
+        }
+        // Then fill them in, in the order of their ids, like the lists have always been
+        int[] adjacency = new int[start[landCount]];
+        for (int i = 0; i < landCount; i++) {
+            int count = grid.findNeighbours(i, found);
+            Arrays.sort(found, 0, count);
+            System.arraycopy(found, 0, adjacency, start[i], count);
+        }
+        return new MapTopology(names, xs, ys, start, adjacency);
+    }
+
+    /*
+     *  Checks for the very specific collision of two 3x3 lands lying exactly in the ring 3 away from each other.
+     *  But only in one coordinate. In the other, it must be closer than 3. Otherwise, it is only touching corners or less.
+     */
+    static boolean isBordering(int ax, int ay, int bx, int by){
+        int dx = Math.abs(ax - bx);
+        int dy = Math.abs(ay - by);
+        return (dx == 3 && dy <= 2) || (dy == 3 && dx <= 2);
+    }
+
+    /*
+     *  The premade map of 16 lands the game has always been played on
+     */
+    public static MapTopology standard(){
+        return StandardMap.TOPOLOGY;
+    }
+
+    // Holder class, so the standard map is only built once, and only when first asked for
+    private static class StandardMap {
+        static final MapTopology TOPOLOGY = fromCoordinates(
+            new String[]{"a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o", "p"},
+            new Coordinate[]{
+                new Coordinate(2, 13), new Coordinate(5, 13), new Coordinate(8, 15), new Coordinate(11, 14),
+                new Coordinate(8, 12), new Coordinate(0, 10), new Coordinate(3, 10), new Coordinate(0, 7),
+                new Coordinate(3, 7), new Coordinate(3, 4), new Coordinate(6, 9), new Coordinate(9, 9),
+                new Coordinate(12, 9), new Coordinate(6, 6), new Coordinate(10, 6), new Coordinate(8, 3)
+            });
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Lookups
+
+
+    public int getLandCount(){
+        return xs.length;
+    }
+
+    public String getName(int land){
+        String name = names[land];
+        if(name == null){
+            // Strings can be shared between threads safely, so two threads decoding the same name at once is harmless
+            ByteBuffer bytes = nameBytes.duplicate();
+            byte[] utf8 = new byte[nameOffsets[land+1] - nameOffsets[land]];
+            bytes.position(nameOffsets[land]);
+            bytes.get(utf8);
+            name = new String(utf8, StandardCharsets.UTF_8);
+            names[land] = name;
+        }
+        return name;
+    }
+
+    public int getX(int land){
+        return xs[land];
+    }
+
+    public int getY(int land){
+        return ys[land];
+    }
+
+    /*
+     *  Returns the region of the land, or -1 if the map has no regions
+     */
+    public int getRegion(int land){
+        return (regions == null ? -1 : regions[land]);
+    }
+
+    /*
+     *  The number of regions, which is 0 if the map has none
+     */
+    public int getRegionCount(){
+        return regionCount;
+    }
+
+    /*
+     *  Returns the number of neighbours the given land has
+     */
+    public int getNeighbourCount(int land){
+        return neighbourStart[land+1] - neighbourStart[land];
+    }
+
+    /*
+     *  Returns the index'th neighbour of the given land, where index goes from 0 to getNeighbourCount(land)-1
+     */
+    public int getNeighbour(int land, int index){
+        return neighbours[neighbourStart[land] + index];
+    }
+
+    /*
+     *  Checks whether the two lands share a border
+     *  Neighbour lists are short, so a scan is faster than anything clever
+     */
+    public boolean isNeighbour(int land, int other){
+        for (int i = neighbourStart[land]; i < neighbourStart[land+1]; i++) {
+            if(neighbours[i] == other){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     *  A 64-bit hash of the lands, their coordinates, neighbours and regions, for telling maps apart
+     *  Two maps with the same fingerprint play the same, so a saved game can check it is put back on the map it was saved on.
+     *  Names do not count, as they do not change how the map plays
+     */
+    public long getFingerprint(){
+        long result = fingerprint;
+        if(result == 0){
+            result = mix(getLandCount());
+            for (int land = 0; land < getLandCount(); land++) {
+                result = mix(result ^ (((long) xs[land] << 32) | (ys[land] & 0xFFFFFFFFL)));
+                result = mix(result ^ (((long) getRegion(land) << 32) | (neighbourStart[land+1] - neighbourStart[land])));
+            }
+            for (int neighbour : neighbours) {
+                result = mix(result ^ neighbour);
+            }
+            // 0 means not worked out yet
+            result = (result == 0 ? 1 : result);
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /*
+     *  For finding the lands in an area without going through every land, fx to draw only part of a huge map
+     *  Built the first time it is asked for, which takes time and memory in proportion to the map
+     */
+    SpatialHash getSpatialHash(){
+        SpatialHash result = spatialHash;
+        if(result == null){
+            // As with the names, two threads may both build it, which is harmless
+            // Any map built by fromCoordinates or MapGenerator has no overlapping lands, so they need not be checked again
+            result = new SpatialHash(xs, ys, getLandCount());
+            for (int land = 0; land < getLandCount(); land++) {
+                result.put(land);
+            }
+            spatialHash = result;
+        }
+        return result;
+    }
+
+    private static long mix(long z){
+        // The finalizer of SplitMix64, with the golden gamma added first so a run of zeros still changes the hash
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /*
+     *  Finds the id of a land by its name, ignoring case. Returns -1 if no land has that name
+     */
+    public int getIdByName(String name){
+        HashMap<String, Integer> lookup = idsByName;
+        if(lookup == null){
+            // Two threads may both build it, which is harmless, as they build the exact same map
+            lookup = new HashMap<>();
+            for (int i = 0; i < getLandCount(); i++) {
+                lookup.put(getName(i).toLowerCase(), i);
+            }
+            idsByName = lookup;
+        }
+        Integer id = lookup.get(name.toLowerCase());
+        return (id == null ? -1 : id);
+    }
+}
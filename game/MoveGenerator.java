@@ -0,0 +1,241 @@
+package game;
+import java.util.*;
+
+import containers.*;
+
+/**
+ * Finds every legal reinforcement, attack and movement of a player, as moves packed into longs, in a buffer that is reused.
+ * Once the buffer is large enough, generating moves allocates nothing, so a search can generate millions of them a second.
+ *
+ * A move is packed like the undo records of Board: the from-land in the lowest 24 bits, the to-land in the next 24,
+ * the count in the next 14, and the kind in the top 2. A reinforcement has its land as the from-land, and 0 as the to-land.
+ * Moves convert to and from Move and Reinforcement, for handing them to a Game.
+ *
+ * Attacks are found from the frontier of the player, so the inside of a large empire is never looked at.
+ * Movements and reinforcements can go to any land of the player, which is a lot of moves for a large empire,
+ * so they can be limited to the frontier, where troops are of any use.
+ *
+ * A generator is used by one thread at a time. A search keeps one for every ply, as the moves of a ply must last while the plies below it are searched.
+ */
+public final class MoveGenerator {
+
+    public static final int ATTACK = 0;
+    public static final int MOVEMENT = 1;
+    public static final int REINFORCEMENT = 2;
+    public static final int MAX_LAND = (1 << 24) - 1;
+    public static final int MAX_COUNT = (1 << 14) - 1;
+
+    private long[] moves = new long[64];
+    private int size;
+
+    private boolean mostDiceOnly;
+    private boolean frontierOnly;
+
+    /*
+     *  Whether an attack is only generated with the most dice its land can roll, instead of once for every number of dice. Off by default
+     *  Rolling more dice is never worse for the attacker, so a search loses nothing by it
+     */
+    public void setMostDiceOnly(boolean mostDiceOnly){
+        this.mostDiceOnly = mostDiceOnly;
+    }
+
+    /*
+     *  Whether movements and reinforcements only go to lands that border a hostile land. Off by default
+     */
+    public void setFrontierOnly(boolean frontierOnly){
+        this.frontierOnly = frontierOnly;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Packing
+
+
+    public static long pack(int kind, int from, int to, int count){
+        if(from < 0 || from > MAX_LAND || to < 0 || to > MAX_LAND){
+            throw new IllegalArgumentException("Only lands 0 to " + MAX_LAND + " fit in a move");
+        }
+        if(count < 0 || count > MAX_COUNT){
+            throw new IllegalArgumentException("A move can not have a count of " + count);
+        }
+        return make(kind, from, to, count);
+    }
+
+    /*
+     *  Packs a move known to fit, which is any move on a board, as a board can not have more lands than its undo records hold
+     */
+    private static long make(int kind, int from, int to, int count){
+        return from | ((long) to << 24) | ((long) count << 48) | ((long) kind << 62);
+    }
+
+    public static int kind(long move){
+        return (int) (move >>> 62);
+    }
+
+    public static int from(long move){
+        return (int) (move & MAX_LAND);
+    }
+
+    public static int to(long move){
+        return (int) ((move >>> 24) & MAX_LAND);
+    }
+
+    public static int count(long move){
+        return (int) ((move >>> 48) & MAX_COUNT);
+    }
+
+    /*
+     *  The move as a Move of the player who owns its from-land, with the lands of the given board
+     *  Throws an exception for a reinforcement, see toReinforcement
+     */
+    public static Move toMove(Board board, long move){
+        if(kind(move) == REINFORCEMENT){
+            throw new IllegalArgumentException("A reinforcement is not a Move");
+        }
+        return new Move(board.getController(from(move)), board.getLand(from(move)), board.getLand(to(move)), count(move));
+    }
+
+    public static Reinforcement toReinforcement(Board board, long move){
+        if(kind(move) != REINFORCEMENT){
+            throw new IllegalArgumentException("Only a reinforcement is a Reinforcement");
+        }
+        return new Reinforcement(board.getLand(from(move)), count(move));
+    }
+
+    /*
+     *  Packs the Move, as a movement if the player of the move owns its to-land on the board, otherwise as an attack
+     */
+    public static long fromMove(Board board, Move move){
+        int kind = (board.getController(move.to.landID) == move.player ? MOVEMENT : ATTACK);
+        return pack(kind, move.from.landID, move.to.landID, move.count);
+    }
+
+    public static long fromReinforcement(Reinforcement reinforcement){
+        return pack(REINFORCEMENT, reinforcement.land.landID, 0, reinforcement.count);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Generating
+
+
+    /*
+     *  Empties the buffer. The generate methods add to what is already there, so moves of several kinds can be gathered in one go
+     */
+    public void clear(){
+        size = 0;
+    }
+
+    /*
+     *  The number of moves in the buffer
+     */
+    public int size(){
+        return size;
+    }
+
+    public long get(int index){
+        return moves[index];
+    }
+
+    /*
+     *  Adds every placement of 1 up to the remaining reinforcements, or MAX_COUNT, on every land of the player
+     *  Returns the number of moves in the buffer
+     */
+    public int generateReinforcements(Board board, int player, int remaining){
+        int most = Math.min(remaining, MAX_COUNT);
+        if(frontierOnly){
+            int frontierSize = board.getFrontierSize(player);
+            for (int f = 0; f < frontierSize; f++) {
+                addReinforcements(board.getFrontierLand(player, f), most);
+            }
+        } else {
+            for (int land = 0; land < board.getBoardSize(); land++) {
+                if(board.getOwner(land) == player){
+                    addReinforcements(land, most);
+                }
+            }
+        }
+        return size;
+    }
+
+    private void addReinforcements(int land, int most){
+        for (int count = 1; count <= most; count++) {
+            add(make(REINFORCEMENT, land, 0, count));
+        }
+    }
+
+    /*
+     *  Adds every attack of the player: from each land with more than one troop, on each hostile neighbour, with 1 up to 3 dice,
+     *  but never more than the troops of the land minus the one that stays behind
+     *  Returns the number of moves in the buffer
+     */
+    public int generateAttacks(Board board, int player){
+        MapTopology topology = board.getTopology();
+        int frontierSize = board.getFrontierSize(player);
+        for (int f = 0; f < frontierSize; f++) {
+            int land = board.getFrontierLand(player, f);
+            int most = Math.min(3, board.getTroops(land) - 1);
+            if(most < 1){
+                continue;
+            }
+            int neighbourCount = topology.getNeighbourCount(land);
+            for (int i = 0; i < neighbourCount; i++) {
+                int neighbour = topology.getNeighbour(land, i);
+                if(board.getOwner(neighbour) != player){
+                    for (int dice = (mostDiceOnly ? most : 1); dice <= most; dice++) {
+                        add(make(ATTACK, land, neighbour, dice));
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /*
+     *  Adds every movement of the player: from each land with more than one troop, to each other land it is connected to, with 1 up to 3 troops,
+     *  but never more than the troops of the land minus the one that stays behind
+     *  This is quadratic in the size of a connected zone, unless only the frontier is moved to
+     *  Returns the number of moves in the buffer
+     */
+    public int generateMovements(Board board, int player){
+        for (int from = 0; from < board.getBoardSize(); from++) {
+            if(board.getOwner(from) != player){
+                continue;
+            }
+            int most = Math.min(3, board.getTroops(from) - 1);
+            if(most < 1){
+                continue;
+            }
+            int zone = board.getZoneId(from);
+            if(frontierOnly){
+                int frontierSize = board.getFrontierSize(player);
+                for (int f = 0; f < frontierSize; f++) {
+                    int to = board.getFrontierLand(player, f);
+                    if(to != from && board.getZoneId(to) == zone){
+                        addMovements(from, to, most);
+                    }
+                }
+            } else {
+                int zoneSize = board.getZoneSize(zone);
+                for (int i = 0; i < zoneSize; i++) {
+                    int to = board.getZoneLand(zone, i);
+                    if(to != from){
+                        addMovements(from, to, most);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private void addMovements(int from, int to, int most){
+        for (int count = 1; count <= most; count++) {
+            add(make(MOVEMENT, from, to, count));
+        }
+    }
+
+    private void add(long move){
+        if(size == moves.length){
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+}
@@ -0,0 +1,64 @@
+package game;
+
+import containers.*;
+import players.*;
+
+/*
+ *  A listener that ignores everything, for games that nobody watches, fx the games of a BatchRunner
+ *  It has no state, so the one instance can be shared by any number of games and threads
+ */
+public final class NoOpListener implements GameEventListener {
+
+    public static final NoOpListener INSTANCE = new NoOpListener();
+
+    private NoOpListener(){
+    }
+
+    @Override
+    public void turnStarted(Board board, int playerNumber){
+    }
+
+    @Override
+    public void reinforcementPlaced(Board board, Player player, Land land, int count){
+    }
+
+    @Override
+    public void reinforcementRejected(Board board, Player player, Reinforcement reinforcement){
+    }
+
+    @Override
+    public void actionPhaseStarted(Board board, Player player){
+    }
+
+    @Override
+    public void diceRolled(Move attack, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+    }
+
+    @Override
+    public void battleResolved(Move attack, int attackerLosses, int defenderLosses){
+    }
+
+    @Override
+    public void landCaptured(Move attack){
+    }
+
+    @Override
+    public void attackConcluded(Move attack){
+    }
+
+    @Override
+    public void movementCarriedOut(Move movement){
+    }
+
+    @Override
+    public void moveRejected(Board board, Move move){
+    }
+
+    @Override
+    public void turnEnded(Board board, int playerNumber){
+    }
+
+    @Override
+    public void gameEnded(Board board, Player winner, int turns){
+    }
+}
@@ -0,0 +1,364 @@
+package game;
+import java.util.*;
+
+/**
+ * Everything that happened in a game, in the order it happened, so the game can be played back exactly, fx to find out
+ * why an AI made a bad decision in a long game of a batch.
+ * A game writes to the log while it is played, see Game.setReplayLog, and ReplayPlayer plays it back.
+ *
+ * The log is a list of records, each a tag followed by varints, and is only ever added to:
+ *  - a keyframe: a GameSnapshot of the game before a turn, written before the first turn and then every keyframe interval turns
+ *  - the start of a turn
+ *  - a reinforcement: the land and the count
+ *  - an attack: the two lands, and the dice rolled on both sides, packed into one varint.
+ *    Losses and captures follow from the dice, so they are not written
+ *  - a movement: the two lands and the count
+ *  - the end of the game: the seat of the winner plus one, or 0 for a draw
+ *
+ * An attack takes about 6 bytes and a turn rarely more than 50, so a log is cheap enough to keep for every game of a batch.
+ * Reaching any turn needs only the keyframe before it, and the records from there, see ReplayPlayer.seek.
+ *
+ * A log is filled by the one thread playing the game. Once the game is over it no longer changes, and may be read by any thread.
+ */
+public final class ReplayLog {
+
+    private static final int MAGIC = 0x50455252;    // "RREP" when read as little endian bytes
+    private static final int VERSION = 1;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    static final int KEYFRAME = 0;
+    static final int TURN = 1;
+    static final int REINFORCEMENT = 2;
+    static final int ATTACK = 3;
+    static final int MOVEMENT = 4;
+    static final int END = 5;
+
+    private final VarIntBuffer buffer;
+    private final int keyframeInterval;
+    private final int recordsStart;     // where the first record starts, after the header
+
+    // Where every keyframe record starts, and the turn count it was made at, so the keyframe before a turn is found with a binary search
+    private int[] keyframeTurns = new int[8];
+    private int[] keyframeOffsets = new int[8];
+    private int keyframeCount;
+    private int lastTurn;               // the turn count after the last turn written
+    private boolean finished;
+
+    /*
+     *  An empty log, with a keyframe every DEFAULT_KEYFRAME_INTERVAL turns
+     */
+    public ReplayLog(){
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /*
+     *  An empty log, with a keyframe every given number of turns
+     *  A keyframe costs about one byte per land, so on huge maps a longer interval keeps the log small, but makes seeking slower
+     */
+    public ReplayLog(int keyframeInterval){
+        if(keyframeInterval < 1){
+            throw new IllegalArgumentException("The keyframe interval must be at least 1 turn");
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.buffer = new VarIntBuffer(256);
+        buffer.writeInt(MAGIC);
+        buffer.writeVarInt(VERSION);
+        buffer.writeVarInt(keyframeInterval);
+        this.recordsStart = buffer.position();
+    }
+
+    /*
+     *  Reads a log from the bytes of toBytes, and finds its keyframes again
+     *  Throws an IllegalArgumentException if the bytes are not a replay log, or do not hold together
+     */
+    public static ReplayLog fromBytes(byte[] bytes){
+        VarIntBuffer reader = new VarIntBuffer(bytes, 0, bytes.length);
+        if(bytes.length < 4 || reader.readInt() != MAGIC){
+            throw new IllegalArgumentException("The bytes are not a replay log");
+        }
+        int version = reader.readVarInt();
+        if(version != VERSION){
+            throw new IllegalArgumentException("The replay log is of version " + version + ", but only version " + VERSION + " can be read");
+        }
+        ReplayLog log = new ReplayLog(reader.readVarInt());
+        if(log.recordsStart != reader.position()){
+            throw new IllegalArgumentException("The replay log has a broken header");
+        }
+        // Read every record, both to check it and to find the keyframes
+        int turn = -1;
+        while(reader.hasRemaining()){
+            if(log.finished){
+                throw new IllegalArgumentException("The replay log goes on after the end of the game");
+            }
+            int offset = reader.position();
+            int tag = reader.readVarInt();
+            if(turn == -1 && tag != KEYFRAME){
+                throw new IllegalArgumentException("The replay log does not start with a keyframe");
+            }
+            switch(tag){
+                case KEYFRAME:
+                    GameSnapshot keyframe = readKeyframe(reader);
+                    if(turn != -1 && keyframe.getTurnCount() != turn){
+                        throw new IllegalArgumentException("The keyframe at byte " + offset + " is of turn " + keyframe.getTurnCount() + ", but the log is at turn " + turn);
+                    }
+                    turn = keyframe.getTurnCount();
+                    log.addKeyframe(turn, offset);
+                    break;
+                case TURN:
+                    turn++;
+                    break;
+                case REINFORCEMENT:
+                    reader.readVarInt();
+                    reader.readVarInt();
+                    break;
+                case ATTACK:
+                    reader.readVarInt();
+                    reader.readVarInt();
+                    unpackDice(reader.readVarInt(), new int[3], new int[2]);
+                    break;
+                case MOVEMENT:
+                    reader.readVarInt();
+                    reader.readVarInt();
+                    reader.readVarInt();
+                    break;
+                case END:
+                    reader.readVarInt();
+                    log.finished = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("The replay log has an unknown record " + tag + " at byte " + offset);
+            }
+            log.lastTurn = turn;
+        }
+        // The records are checked, and lie at the same offsets in the log as in the bytes
+        log.buffer.writeBytes(bytes, log.recordsStart, bytes.length - log.recordsStart);
+        return log;
+    }
+
+    public byte[] toBytes(){
+        return buffer.toByteArray();
+    }
+
+    /*
+     *  The size of the log in bytes
+     */
+    public int size(){
+        return buffer.position();
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Writing, done by Game
+
+
+    /*
+     *  The game is about to be played, after the given number of turns
+     *  Writes the first keyframe, so the log holds the game even if it is over before a single turn is played
+     */
+    void gameStarted(Board board, Dice dice, int turnCount){
+        checkNotFinished();
+        if(keyframeCount == 0){
+            writeKeyframe(board, dice, turnCount);
+            lastTurn = turnCount;
+        }
+    }
+
+    /*
+     *  A turn is about to be played, after the given number of turns
+     *  Writes a keyframe first if one is due, with the dice as they are before the turn, so the game can also be resumed from there
+     */
+    void turnStarted(Board board, Dice dice, int turnCount){
+        checkNotFinished();
+        // The first keyframe is made here as well, for a game whose turns are played without startGame
+        if(keyframeCount == 0 || (turnCount % keyframeInterval == 0 && keyframeTurns[keyframeCount-1] != turnCount)){
+            writeKeyframe(board, dice, turnCount);
+        }
+        buffer.writeVarInt(TURN);
+        lastTurn = turnCount + 1;
+    }
+
+    private void writeKeyframe(Board board, Dice dice, int turnCount){
+        byte[] snapshot = GameSnapshot.of(board, dice, turnCount).toBytes();
+        addKeyframe(turnCount, buffer.position());
+        buffer.writeVarInt(KEYFRAME);
+        buffer.writeVarInt(snapshot.length);
+        buffer.writeBytes(snapshot, 0, snapshot.length);
+    }
+
+    void reinforcementPlaced(int land, int count){
+        checkStarted();
+        buffer.writeVarInt(REINFORCEMENT);
+        buffer.writeVarInt(land);
+        buffer.writeVarInt(count);
+    }
+
+    void attackRolled(int from, int to, int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+        checkStarted();
+        buffer.writeVarInt(ATTACK);
+        buffer.writeVarInt(from);
+        buffer.writeVarInt(to);
+        buffer.writeVarInt(packDice(attackerRolls, attackerDice, defenderRolls, defenderDice));
+    }
+
+    void movementCarriedOut(int from, int to, int count){
+        checkStarted();
+        buffer.writeVarInt(MOVEMENT);
+        buffer.writeVarInt(from);
+        buffer.writeVarInt(to);
+        buffer.writeVarInt(count);
+    }
+
+    /*
+     *  The game is over, won by the player in the given seat, or a draw if it is -1
+     */
+    void gameEnded(int winnerIndex){
+        checkStarted();
+        checkNotFinished();
+        buffer.writeVarInt(END);
+        buffer.writeVarInt(winnerIndex + 1);
+        finished = true;
+    }
+
+    private void checkStarted(){
+        if(keyframeCount == 0){
+            throw new IllegalStateException("Nothing can be written to a replay log before the first turn");
+        }
+    }
+
+    private void checkNotFinished(){
+        if(finished){
+            throw new IllegalStateException("The game of this replay log is already over");
+        }
+    }
+
+    private void addKeyframe(int turnCount, int offset){
+        if(keyframeCount == keyframeTurns.length){
+            keyframeTurns = Arrays.copyOf(keyframeTurns, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTurns[keyframeCount] = turnCount;
+        keyframeOffsets[keyframeCount] = offset;
+        keyframeCount++;
+    }
+
+    /*
+     *  The dice of an attack in one number: the dice counts in 2 bits each, then every roll minus 1 in 3 bits each
+     *  At most 18 bits, so an attack takes 3 bytes for the dice
+     */
+    private static int packDice(int[] attackerRolls, int attackerDice, int[] defenderRolls, int defenderDice){
+        int packed = attackerDice | (defenderDice << 2);
+        int shift = 4;
+        for (int i = 0; i < attackerDice; i++, shift += 3) {
+            packed |= (attackerRolls[i] - 1) << shift;
+        }
+        for (int i = 0; i < defenderDice; i++, shift += 3) {
+            packed |= (defenderRolls[i] - 1) << shift;
+        }
+        return packed;
+    }
+
+    /*
+     *  Writes the rolls into the arrays, and returns the attacker dice in the low 16 bits and the defender dice above them
+     */
+    static int unpackDice(int packed, int[] attackerRolls, int[] defenderRolls){
+        int attackerDice = packed & 3;
+        int defenderDice = (packed >>> 2) & 3;
+        if(attackerDice < 1 || attackerDice > Battle.MAX_ATTACKER_DICE || defenderDice < 1 || defenderDice > Battle.MAX_DEFENDER_DICE){
+            throw new IllegalArgumentException("The replay log has an attack with " + attackerDice + " against " + defenderDice + " dice");
+        }
+        int shift = 4;
+        for (int i = 0; i < attackerDice; i++, shift += 3) {
+            attackerRolls[i] = ((packed >>> shift) & 7) + 1;
+        }
+        for (int i = 0; i < defenderDice; i++, shift += 3) {
+            defenderRolls[i] = ((packed >>> shift) & 7) + 1;
+        }
+        return attackerDice | (defenderDice << 16);
+    }
+
+    static GameSnapshot readKeyframe(VarIntBuffer reader){
+        int length = reader.readVarInt();
+        if(length < 0 || reader.position() + length > reader.limit()){
+            throw new IllegalArgumentException("The replay log ends in the middle of a keyframe");
+        }
+        byte[] snapshot = Arrays.copyOfRange(reader.array(), reader.position(), reader.position() + length);
+        reader.position(reader.position() + length);
+        return GameSnapshot.fromBytes(snapshot);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Reading, done by ReplayPlayer
+
+
+    /*
+     *  A reader of the records from the given byte on, up to what has been written so far
+     */
+    VarIntBuffer reader(int offset){
+        return new VarIntBuffer(buffer.array(), offset, buffer.position() - offset);
+    }
+
+    /*
+     *  The index of the last keyframe made at or before the given turn count, or -1 if there is none
+     */
+    int findKeyframe(int turnCount){
+        int index = Arrays.binarySearch(keyframeTurns, 0, keyframeCount, turnCount);
+        return (index >= 0 ? index : -index - 2);
+    }
+
+    int getKeyframeTurn(int index){
+        return keyframeTurns[index];
+    }
+
+    /*
+     *  Where the keyframe record starts, with its tag
+     */
+    int getKeyframeOffset(int index){
+        return keyframeOffsets[index];
+    }
+
+    /*
+     *  The game as it was before the turn after the given turn count, with its dice, for resuming it from the keyframe before it
+     *  Throws an exception if the log has no keyframe that early
+     */
+    public GameSnapshot getKeyframeBefore(int turnCount){
+        int index = findKeyframe(turnCount);
+        if(index < 0){
+            throw new IllegalArgumentException("The replay log starts after turn " + turnCount);
+        }
+        VarIntBuffer reader = reader(keyframeOffsets[index]);
+        reader.readVarInt();
+        return readKeyframe(reader);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - What is in it
+
+
+    public int getKeyframeInterval(){
+        return keyframeInterval;
+    }
+
+    public int getKeyframeCount(){
+        return keyframeCount;
+    }
+
+    /*
+     *  The turn count the log starts at, which is 0 unless the game was resumed from a snapshot
+     */
+    public int getFirstTurn(){
+        return (keyframeCount == 0 ? 0 : keyframeTurns[0]);
+    }
+
+    /*
+     *  The turn count after the last turn in the log
+     */
+    public int getLastTurn(){
+        return lastTurn;
+    }
+
+    /*
+     *  Whether the end of the game is written
+     */
+    public boolean isFinished(){
+        return finished;
+    }
+}
@@ -0,0 +1,235 @@
+package game;
+import java.util.*;
+
+import containers.*;
+import players.*;
+
+/**
+ * Plays a ReplayLog back on a board, one record at a time, or jumps straight to any turn.
+ * Nothing is rolled and no player is asked anything, the board only gets the changes that were written,
+ * so the game goes exactly as it went, however the players made their decisions.
+ *
+ * The board starts as the first keyframe of the log. seek puts it back at the last keyframe before the turn,
+ * unless it is already between that keyframe and the turn, and plays forward from there,
+ * so it costs at most the records of one keyframe interval, however long the game is.
+ *
+ * A listener can be told what happens while the log is played, with the same calls a game makes, fx a ConsoleListener
+ * to read the game as it was played. Rejected reinforcements and moves are not in the log, so they are never told.
+ */
+public final class ReplayPlayer {
+
+    private final ReplayLog log;
+    private final Board board;
+    private GameEventListener listener = NoOpListener.INSTANCE;
+
+    private VarIntBuffer reader;
+    private int turnCount;      // the number of turns started so far, like Game.getTurnCount
+    private boolean inTurn;     // whether a turn has started that the listener has not been told has ended
+    private boolean acting;     // whether the player of the turn is done reinforcing
+    private boolean ended;
+
+    private final int[] attackerRolls = new int[Battle.MAX_ATTACKER_DICE];
+    private final int[] defenderRolls = new int[Battle.MAX_DEFENDER_DICE];
+
+    /**
+     * @param log - the game to play back
+     * @param players - the players of the game, in the same seats. They are only told to the listener, and never asked anything
+     * @param map - the map the game was played on, which is checked against the keyframes
+     */
+    public ReplayPlayer(ReplayLog log, ArrayList<Player> players, MapTopology map){
+        if(log.getKeyframeCount() == 0){
+            throw new IllegalArgumentException("The replay log is empty");
+        }
+        this.log = log;
+        this.board = log.getKeyframeBefore(log.getFirstTurn()).toBoard(players, map);
+        restoreKeyframe(0);
+    }
+
+    public void setListener(GameEventListener listener){
+        this.listener = listener;
+    }
+
+    /*
+     *  The board as it is at this point of the game. It changes as the log is played, and must not be changed by anyone else
+     */
+    public Board getBoard(){
+        return board;
+    }
+
+    /*
+     *  The number of turns started so far, including the one being played
+     */
+    public int getTurnCount(){
+        return turnCount;
+    }
+
+    /*
+     *  Whether the end of the game has been played
+     */
+    public boolean isGameOver(){
+        return ended;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Playing
+
+
+    /*
+     *  Whether there is a record left to play
+     *  A log that is still being written to can be played as it grows, from the thread writing it
+     */
+    public boolean hasNext(){
+        if(!reader.hasRemaining()){
+            reader = log.reader(reader.position());
+        }
+        return reader.hasRemaining();
+    }
+
+    /*
+     *  Plays the next record of the log, and returns false if there were none left
+     */
+    public boolean step(){
+        if(!hasNext()){
+            return false;
+        }
+        int tag = reader.readVarInt();
+        switch(tag){
+            case ReplayLog.KEYFRAME:
+                // The board is already as the keyframe says
+                int length = reader.readVarInt();
+                reader.position(reader.position() + length);
+                break;
+            case ReplayLog.TURN:
+                endTurn();
+                turnCount++;
+                int playerNumber = board.nextPlayer();
+                inTurn = true;
+                acting = false;
+                listener.turnStarted(board, playerNumber);
+                break;
+            case ReplayLog.REINFORCEMENT:
+                int land = reader.readVarInt();
+                int count = reader.readVarInt();
+                board.changeTroopCount(land, count);
+                listener.reinforcementPlaced(board, board.getController(land), board.getLand(land), count);
+                break;
+            case ReplayLog.ATTACK:
+                startActing();
+                playAttack(reader.readVarInt(), reader.readVarInt(), reader.readVarInt());
+                break;
+            case ReplayLog.MOVEMENT:
+                startActing();
+                int from = reader.readVarInt();
+                int to = reader.readVarInt();
+                int troops = reader.readVarInt();
+                board.changeTroopCount(from, -troops);
+                board.changeTroopCount(to, troops);
+                if(listener != NoOpListener.INSTANCE){
+                    listener.movementCarriedOut(new Move(board.getController(from), board.getLand(from), board.getLand(to), troops));
+                }
+                break;
+            case ReplayLog.END:
+                endTurn();
+                int winner = reader.readVarInt();
+                ended = true;
+                listener.gameEnded(board, (winner == 0 ? null : board.getPlayer(winner - 1)), turnCount);
+                break;
+            default:
+                throw new IllegalArgumentException("The replay log has an unknown record " + tag);
+        }
+        return true;
+    }
+
+    /*
+     *  Plays the rest of the log
+     */
+    public void playToEnd(){
+        while(step()){
+        }
+    }
+
+    /*
+     *  Puts the board as it was after the given number of turns, before the next turn started
+     *  The listener is not told about the turns skipped over
+     */
+    public void seek(int turn){
+        if(turn < log.getFirstTurn() || turn > log.getLastTurn()){
+            throw new IllegalArgumentException("Turn " + turn + " is not in the replay log, which has turns " + log.getFirstTurn() + " to " + log.getLastTurn());
+        }
+        int keyframe = log.findKeyframe(turn);
+        // Going back always needs a keyframe, going forward only if there is one past where the board is now
+        if(turn < turnCount || log.getKeyframeTurn(keyframe) > turnCount){
+            restoreKeyframe(keyframe);
+        }
+        GameEventListener watching = listener;
+        listener = NoOpListener.INSTANCE;
+        try {
+            while(hasNext() && !(turnCount == turn && isAtTurnEnd())){
+                step();
+            }
+        } finally {
+            listener = watching;
+        }
+        // The turn that was skipped to is over, and is never told as ended
+        inTurn = false;
+        acting = false;
+    }
+
+    private void restoreKeyframe(int index){
+        reader = log.reader(log.getKeyframeOffset(index));
+        reader.readVarInt();
+        GameSnapshot snapshot = ReplayLog.readKeyframe(reader);
+        snapshot.restore(board);
+        turnCount = snapshot.getTurnCount();
+        inTurn = false;
+        acting = false;
+        ended = false;
+    }
+
+    /*
+     *  Whether the next record starts something new: a turn, a keyframe before a turn, or the end of the game
+     */
+    private boolean isAtTurnEnd(){
+        int position = reader.position();
+        int tag = reader.readVarInt();
+        reader.position(position);
+        return tag == ReplayLog.TURN || tag == ReplayLog.KEYFRAME || tag == ReplayLog.END;
+    }
+
+    private void playAttack(int from, int to, int dice){
+        int packed = ReplayLog.unpackDice(dice, attackerRolls, defenderRolls);
+        int attackerDice = packed & 0xFFFF;
+        int defenderDice = packed >>> 16;
+        int result = Battle.resolve(attackerRolls, attackerDice, defenderRolls, defenderDice);
+        int playerIndex = board.getOwner(from);
+        board.applyOutcome(from, to, playerIndex, Battle.attackerLosses(result), Battle.defenderLosses(result));
+        if(listener != NoOpListener.INSTANCE){
+            Move attack = new Move(board.getPlayer(playerIndex), board.getLand(from), board.getLand(to), attackerDice);
+            listener.diceRolled(attack, attackerRolls, attackerDice, defenderRolls, defenderDice);
+            listener.battleResolved(attack, Battle.attackerLosses(result), Battle.defenderLosses(result));
+            if(board.getOwner(to) == playerIndex){
+                listener.landCaptured(attack);
+            }
+            listener.attackConcluded(attack);
+        }
+    }
+
+    /*
+     *  The game tells the listener when the player is done reinforcing, which the log only shows by what comes next
+     */
+    private void startActing(){
+        if(!acting){
+            acting = true;
+            listener.actionPhaseStarted(board, board.getPlayer(board.getPlayerTurn() - 1));
+        }
+    }
+
+    private void endTurn(){
+        if(inTurn){
+            startActing();
+            listener.turnEnded(board, board.getPlayerTurn());
+            inTurn = false;
+            acting = false;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package game;
+import java.util.*;
+
+import containers.*;
+
+/*
+ *  Finds lands by their center, for building maps of 3x3 lands
+ *  The plane is cut into buckets of 3x3 coordinates, and each bucket knows the land whose center lies in it.
+ *  Two lands that do not overlap have centers at least 3 apart on one axis, so a bucket can never hold more than one land.
+ *
+ *  Any land that overlaps or borders a land has its center at most 3 away on both axes,
+ *  which is always in the bucket of that center, or in one of the 8 buckets around it.
+ *  So both checks look at 9 buckets, no matter how many lands the map has.
+ *
+ *  The buckets are grouped in tiles of 4x4, and the hash table holds tiles, each with the lands of its 16 buckets next to each other.
+ *  The buckets around a land are then mostly in the same tile, and a bucket with no land is found out
+ *  without searching the table any further. The table holds primitives, not a HashMap of Coordinates,
+ *  as a map of a million lands is looked up tens of millions of times while it is made,
+ *  and every lookup in a HashMap follows pointers to the entry, the key and the boxed land, which all miss the cache.
+ */
+final class SpatialHash {
+
+    static final int BUCKET_SIZE = 3;
+    private static final int TILE_SIZE = 4;
+    private static final int TILE_BUCKETS = TILE_SIZE * TILE_SIZE;
+
+    // Open addressing: a tile is at the slot its key hashes to, or the first free slot after that
+    // Free slots hold a key no tile can have, as tile coordinates are a quarter of bucket coordinates, which are ints
+    private static final long FREE = Long.MIN_VALUE;
+    private long[] tileKeys;
+    private int[] tileLands;    // the land of every bucket of every tile, or -1. The buckets of the tile in slot i start at i * 16
+    private int tileCount;
+    private int mask;
+
+    private final int[] xs;
+    private final int[] ys;
+
+    /*
+     *  For looking up the lands with the given centers, which are added later
+     */
+    SpatialHash(int[] xs, int[] ys, int expectedLands){
+        this.xs = xs;
+        this.ys = ys;
+        // A map that grows in one piece fills most of the buckets of its tiles. Sparser maps make the table grow
+        allocate(Integer.highestOneBit(Math.max(expectedLands / 4, 8)));
+    }
+
+    /*
+     *  Adds the land, whose center must already be in the arrays
+     *  Throws an exception if it overlaps a land already added
+     */
+    void add(int land){
+        if(!isFree(xs[land], ys[land])){
+            throw new IllegalArgumentException("Land " + land + " at " + new Coordinate(xs[land], ys[land]) + " overlaps another land");
+        }
+        put(land);
+    }
+
+    /*
+     *  Adds the land without checking it against the lands already added
+     *  A land that overlaps another may take its bucket, so only maps known to have no overlaps should be built this way
+     */
+    void put(int land){
+        int bucketX = Math.floorDiv(xs[land], BUCKET_SIZE);
+        int bucketY = Math.floorDiv(ys[land], BUCKET_SIZE);
+        long key = tileKey(bucketX, bucketY);
+        int slot = findSlot(key);
+        if(tileKeys[slot] == FREE){
+            // Keep the table at most half full, so the runs of taken slots stay short
+            if((tileCount + 1) * 2 > tileKeys.length){
+                grow();
+                slot = findSlot(key);
+            }
+            tileKeys[slot] = key;
+            tileCount++;
+        }
+        tileLands[slot * TILE_BUCKETS + bucketIndex(bucketX, bucketY)] = land;
+    }
+
+    /*
+     *  Whether a 3x3 land can be placed with its center here, without overlapping any land
+     */
+    boolean isFree(int x, int y){
+        int bucketX = Math.floorDiv(x, BUCKET_SIZE);
+        int bucketY = Math.floorDiv(y, BUCKET_SIZE);
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int other = getBucket(bucketX + dx, bucketY + dy);
+                if(other != -1 && Math.abs(xs[other] - x) <= 2 && Math.abs(ys[other] - y) <= 2){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     *  Writes every land with its center at most 5 away from the given point into the buffer, and maybe some a bit further away,
+     *  and returns how many there are. The buffer must have room for 25, one land for each bucket looked at
+     *  A land overlapping any of the spots next to a land is always in here, so the spots can be checked against these lands alone
+     */
+    int findNearby(int x, int y, int[] buffer){
+        int bucketX = Math.floorDiv(x, BUCKET_SIZE);
+        int bucketY = Math.floorDiv(y, BUCKET_SIZE);
+        int count = 0;
+        for (int dy = -2; dy <= 2; dy++) {
+            for (int dx = -2; dx <= 2; dx++) {
+                int other = getBucket(bucketX + dx, bucketY + dy);
+                if(other != -1){
+                    buffer[count++] = other;
+                }
+            }
+        }
+        return count;
+    }
+
+    int getX(int land){
+        return xs[land];
+    }
+
+    int getY(int land){
+        return ys[land];
+    }
+
+    /*
+     *  Writes the lands bordering the given land into the buffer, and returns how many there are
+     *  The buffer must have room for 8, as the land itself takes up one of the 9 buckets looked at
+     */
+    int findNeighbours(int land, int[] buffer){
+        int x = xs[land];
+        int y = ys[land];
+        int bucketX = Math.floorDiv(x, BUCKET_SIZE);
+        int bucketY = Math.floorDiv(y, BUCKET_SIZE);
+        int count = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int other = getBucket(bucketX + dx, bucketY + dy);
+                if(other != -1 && MapTopology.isBordering(x, y, xs[other], ys[other])){
+                    buffer[count++] = other;
+                }
+            }
+        }
+        return count;
+    }
+
+    /*
+     *  The land in the bucket, or -1 if it is empty
+     */
+    int getBucket(int bucketX, int bucketY){
+        int slot = findSlot(tileKey(bucketX, bucketY));
+        return (tileKeys[slot] != FREE ? tileLands[slot * TILE_BUCKETS + bucketIndex(bucketX, bucketY)] : -1);
+    }
+
+    /*
+     *  The slot of the tile, or the free slot it would go in
+     */
+    private int findSlot(long key){
+        int slot = hash(key) & mask;
+        while(tileKeys[slot] != key && tileKeys[slot] != FREE){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow(){
+        long[] oldKeys = tileKeys;
+        int[] oldLands = tileLands;
+        allocate(oldKeys.length * 2);
+        for (int old = 0; old < oldKeys.length; old++) {
+            if(oldKeys[old] != FREE){
+                int slot = findSlot(oldKeys[old]);
+                tileKeys[slot] = oldKeys[old];
+                System.arraycopy(oldLands, old * TILE_BUCKETS, tileLands, slot * TILE_BUCKETS, TILE_BUCKETS);
+                tileCount++;
+            }
+        }
+    }
+
+    private void allocate(int capacity){
+        tileKeys = new long[capacity];
+        Arrays.fill(tileKeys, FREE);
+        tileLands = new int[capacity * TILE_BUCKETS];
+        Arrays.fill(tileLands, -1);
+        tileCount = 0;
+        mask = capacity - 1;
+    }
+
+    private static long tileKey(int bucketX, int bucketY){
+        return ((long) Math.floorDiv(bucketX, TILE_SIZE) << 32) | (Math.floorDiv(bucketY, TILE_SIZE) & 0xFFFFFFFFL);
+    }
+
+    private static int bucketIndex(int bucketX, int bucketY){
+        return Math.floorMod(bucketX, TILE_SIZE) * TILE_SIZE + Math.floorMod(bucketY, TILE_SIZE);
+    }
+
+    private static int hash(long key){
+        // The finalizer of SplitMix64, so tiles next to each other spread out over the whole table
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (key ^ (key >>> 31));
+    }
+}
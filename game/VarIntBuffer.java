@@ -0,0 +1,152 @@
+package game;
+import java.util.*;
+
+/*
+ *  A growable array of bytes, for writing and reading numbers in a compact form
+ *  Used by game snapshots and replays, where most numbers are small, so they are written as varints:
+ *  7 bits per byte, lowest bits first, with the top bit set on every byte but the last. Numbers below 128 take a single byte.
+ *  Numbers that are not small, fx hashes and seeds, are written as 8 bytes instead.
+ */
+final class VarIntBuffer {
+
+    private byte[] data;
+    private int position;
+    private int limit;      // for reading, the end of the bytes that may be read
+
+    /*
+     *  An empty buffer to write to
+     */
+    VarIntBuffer(int capacity){
+        this.data = new byte[Math.max(capacity, 16)];
+        this.limit = data.length;
+    }
+
+    /*
+     *  A buffer to read the given bytes from. The bytes are not copied, so they must not change while they are read
+     */
+    VarIntBuffer(byte[] data, int offset, int length){
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /*
+     *  Writes the number as a varint. Negative numbers are written as the large number of their bits, and take 10 bytes
+     */
+    void writeVarLong(long value){
+        ensureRoom(10);
+        while((value & ~0x7FL) != 0){
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+    }
+
+    /*
+     *  Writes the number as a varint. Negative numbers take 5 bytes, and read back as the same number
+     */
+    void writeVarInt(int value){
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeInt(int value){
+        ensureRoom(4);
+        for (int i = 0; i < 4; i++) {
+            data[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    void writeLong(long value){
+        ensureRoom(8);
+        for (int i = 0; i < 8; i++) {
+            data[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length){
+        ensureRoom(length);
+        System.arraycopy(bytes, offset, data, position, length);
+        position += length;
+    }
+
+    long readVarLong(){
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if(position == limit){
+                throw new IllegalArgumentException("The bytes ended in the middle of a number");
+            }
+            byte b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0){
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("A varint is longer than 10 bytes");
+    }
+
+    int readVarInt(){
+        return (int) readVarLong();
+    }
+
+    int readInt(){
+        if(limit - position < 4){
+            throw new IllegalArgumentException("The bytes ended in the middle of a number");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (data[position++] & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    long readLong(){
+        if(limit - position < 8){
+            throw new IllegalArgumentException("The bytes ended in the middle of a number");
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value |= (data[position++] & 0xFFL) << (8 * i);
+        }
+        return value;
+    }
+
+    int position(){
+        return position;
+    }
+
+    void position(int position){
+        this.position = position;
+    }
+
+    /*
+     *  The end of the bytes that may be read
+     */
+    int limit(){
+        return limit;
+    }
+
+    boolean hasRemaining(){
+        return position < limit;
+    }
+
+    /*
+     *  The bytes written so far
+     */
+    byte[] toByteArray(){
+        return Arrays.copyOf(data, position);
+    }
+
+    /*
+     *  The array the bytes are written to. Only the first position() of them are in use, and it changes when the buffer grows
+     */
+    byte[] array(){
+        return data;
+    }
+
+    private void ensureRoom(int bytes){
+        if(data.length - position < bytes){
+            data = Arrays.copyOf(data, Math.max(data.length * 2, position + bytes));
+            limit = data.length;
+        }
+    }
+}
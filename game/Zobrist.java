@@ -0,0 +1,41 @@
+package game;
+
+/*
+ *  Zobrist keys for hashing a board
+ *  A board's hash is the XOR of one key per land, for the (land, owner, troop count) it is in, and one key for the player to move.
+ *  Since XOR is its own inverse, a change to a single land only needs the old key XOR'ed out and the new key XOR'ed in.
+ *
+ *  Troop counts have no upper limit, so the keys are not kept in a table.
+ *  Instead they are made on the spot by mixing the inputs with the finalizer of SplitMix64, which is a bijection on longs.
+ *  This makes the keys fixed for all runs and all maps, so hashes can be compared between processes as well.
+ */
+final class Zobrist {
+
+    private static final long LAND_SALT = 0x9E3779B97F4A7C15L;
+    private static final long TURN_SALT = 0xD1B54A32D192ED03L;
+
+    private Zobrist(){
+    }
+
+    /*
+     *  The key for a land being controlled by the player with the given index, with the given troop count
+     */
+    static long landKey(int land, int owner, int troops){
+        // The land and owner go into the first round, so two lands never share the sequence of keys over troop counts
+        long landAndOwner = mix(((long) land << 16) ^ (owner + 1) ^ LAND_SALT);
+        return mix(landAndOwner + troops * LAND_SALT);
+    }
+
+    /*
+     *  The key for it being the turn of the given player number
+     */
+    static long turnKey(int playerTurn){
+        return mix(TURN_SALT + playerTurn);
+    }
+
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,251 @@
+package game;
+
+/*
+ *  Keeps track of the zones of a board: the groups of lands that are connected through lands of the same controller
+ *  Troops can only be moved within a zone, so knowing the zones makes checking a movement a lookup instead of a search.
+ *
+ *  Every zone has an id and a list of its lands, and every land knows its zone and its place in that list.
+ *  The zones are only changed around the land whose controller changed:
+ *  - The land joins the zones of its new controller around it, merging them into one. The smaller zones move into the largest,
+ *    so a land only moves zone a logarithmic number of times over a whole game.
+ *  - The zone the land leaves may fall apart. A search from one of its old neighbours finds out, and stops as soon as it
+ *    has found all the others. Only if it does not, the pieces are searched and given zones of their own,
+ *    so the work is never more than the size of the zone that was split.
+ *
+ *  Lands nobody controls are in no zone.
+ */
+final class ZoneIndex {
+
+    private final Board board;
+    private final MapTopology topology;
+
+    private final int[] zoneOf;         // the zone of each land, or -1
+    private final int[] indexInZone;    // where the land is in the list of its zone
+    private final int[][] members;      // the lands of each zone. Only the first zoneSize of them are in use
+    private final int[] zoneSize;
+    private final int[] zoneOwner;
+    // Zone ids not in use. There can never be more zones than lands, so there are as many ids as lands
+    private final int[] freeZones;
+    private int freeCount;
+
+    // For searches: a land is visited if its mark is the current epoch, so nothing has to be cleared between searches
+    private final int[] mark;
+    private int epoch;
+    private final int[] queue;
+
+    ZoneIndex(Board board){
+        this.board = board;
+        this.topology = board.getTopology();
+        int landCount = topology.getLandCount();
+        zoneOf = new int[landCount];
+        indexInZone = new int[landCount];
+        members = new int[landCount][];
+        zoneSize = new int[landCount];
+        zoneOwner = new int[landCount];
+        freeZones = new int[landCount];
+        mark = new int[landCount];
+        queue = new int[landCount];
+        for (int i = 0; i < landCount; i++) {
+            freeZones[i] = landCount - 1 - i;
+            zoneOf[i] = -1;
+        }
+        freeCount = landCount;
+
+        // Search out every zone from scratch
+        for (int land = 0; land < landCount; land++) {
+            int owner = board.getOwner(land);
+            if(owner != -1 && zoneOf[land] == -1){
+                int zone = newZone(owner);
+                addToZone(zone, land);
+                for (int head = indexInZone[land]; head < zoneSize[zone]; head++) {
+                    int current = members[zone][head];
+                    for (int i = 0; i < topology.getNeighbourCount(current); i++) {
+                        int neighbour = topology.getNeighbour(current, i);
+                        if(zoneOf[neighbour] == -1 && board.getOwner(neighbour) == owner){
+                            addToZone(zone, neighbour);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    int zoneOf(int land){
+        return zoneOf[land];
+    }
+
+    int zoneSize(int zone){
+        return zoneSize[zone];
+    }
+
+    int zoneLand(int zone, int index){
+        return members[zone][index];
+    }
+
+    int zoneOwner(int zone){
+        return zoneOwner[zone];
+    }
+
+    /*
+     *  Zone ids go from 0 up to this, but only those with a size above 0 are in use
+     */
+    int zoneCapacity(){
+        return zoneSize.length;
+    }
+
+    /*
+     *  Must be called after the controller of the land has changed in the board
+     */
+    void controllerChanged(int land, int oldOwner, int newOwner){
+        if(oldOwner != -1){
+            leave(land, oldOwner);
+        }
+        if(newOwner != -1){
+            join(land, newOwner);
+        }
+    }
+
+    private void join(int land, int owner){
+        // The largest zone of the owner around the land takes in the land and all the other zones
+        int target = -1;
+        int neighbourCount = topology.getNeighbourCount(land);
+        for (int i = 0; i < neighbourCount; i++) {
+            int neighbour = topology.getNeighbour(land, i);
+            if(board.getOwner(neighbour) == owner){
+                int zone = zoneOf[neighbour];
+                if(target == -1 || zoneSize[zone] > zoneSize[target]){
+                    target = zone;
+                }
+            }
+        }
+        if(target == -1){
+            target = newZone(owner);
+        } else {
+            for (int i = 0; i < neighbourCount; i++) {
+                int neighbour = topology.getNeighbour(land, i);
+                if(board.getOwner(neighbour) == owner && zoneOf[neighbour] != target){
+                    mergeInto(zoneOf[neighbour], target);
+                }
+            }
+        }
+        addToZone(target, land);
+    }
+
+    private void leave(int land, int owner){
+        int zone = zoneOf[land];
+        removeFromZone(land);
+        if(zoneSize[zone] == 0){
+            return;
+        }
+        // The zone can only have split if the land joined two or more of its lands together
+        int neighbourCount = topology.getNeighbourCount(land);
+        int first = -1;
+        int ownNeighbours = 0;
+        for (int i = 0; i < neighbourCount; i++) {
+            int neighbour = topology.getNeighbour(land, i);
+            if(board.getOwner(neighbour) == owner){
+                if(first == -1){
+                    first = neighbour;
+                }
+                ownNeighbours++;
+            }
+        }
+        if(ownNeighbours < 2){
+            return;
+        }
+        // Search from the first neighbour. If it reaches the other neighbours, the zone is still whole
+        epoch++;
+        int toFind = ownNeighbours - 1;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = first;
+        mark[first] = epoch;
+        while(head < tail && toFind > 0){
+            int current = queue[head++];
+            for (int i = 0; i < topology.getNeighbourCount(current); i++) {
+                int next = topology.getNeighbour(current, i);
+                if(mark[next] != epoch && board.getOwner(next) == owner){
+                    mark[next] = epoch;
+                    queue[tail++] = next;
+                    if(topology.isNeighbour(next, land)){
+                        toFind--;
+                    }
+                }
+            }
+        }
+        if(toFind == 0){
+            return;
+        }
+        // The zone has split, and the search has marked every land of the piece of the first neighbour.
+        // That piece stays in the zone, every other piece gets a zone of its own
+        for (int i = 0; i < neighbourCount; i++) {
+            int start = topology.getNeighbour(land, i);
+            if(board.getOwner(start) != owner || mark[start] == epoch){
+                continue;
+            }
+            int piece = newZone(owner);
+            mark[start] = epoch;
+            removeFromZone(start);
+            addToZone(piece, start);
+            // The lands of the new zone double as the queue of the search
+            for (int next = 0; next < zoneSize[piece]; next++) {
+                int current = members[piece][next];
+                for (int j = 0; j < topology.getNeighbourCount(current); j++) {
+                    int neighbour = topology.getNeighbour(current, j);
+                    if(mark[neighbour] != epoch && board.getOwner(neighbour) == owner){
+                        mark[neighbour] = epoch;
+                        removeFromZone(neighbour);
+                        addToZone(piece, neighbour);
+                    }
+                }
+            }
+        }
+    }
+
+    private int newZone(int owner){
+        int zone = freeZones[--freeCount];
+        zoneSize[zone] = 0;
+        zoneOwner[zone] = owner;
+        if(members[zone] == null){
+            members[zone] = new int[4];
+        }
+        return zone;
+    }
+
+    private void addToZone(int zone, int land){
+        int size = zoneSize[zone];
+        if(size == members[zone].length){
+            int[] grown = new int[size * 2];
+            System.arraycopy(members[zone], 0, grown, 0, size);
+            members[zone] = grown;
+        }
+        members[zone][size] = land;
+        indexInZone[land] = size;
+        zoneSize[zone] = size + 1;
+        zoneOf[land] = zone;
+    }
+
+    /*
+     *  Takes the land out of its zone, by moving the last land of the zone into its place
+     *  A zone left empty goes back to the free ids
+     */
+    private void removeFromZone(int land){
+        int zone = zoneOf[land];
+        int index = indexInZone[land];
+        int last = members[zone][--zoneSize[zone]];
+        members[zone][index] = last;
+        indexInZone[last] = index;
+        zoneOf[land] = -1;
+        if(zoneSize[zone] == 0){
+            freeZones[freeCount++] = zone;
+        }
+    }
+
+    private void mergeInto(int from, int into){
+        while(zoneSize[from] > 0){
+            int land = members[from][zoneSize[from]-1];
+            removeFromZone(land);
+            addToZone(into, land);
+        }
+    }
+}
@@ -101,17 +101,21 @@ public class AIAttempt {
      * The attack move is found through the construction of an AND-OR tree.
      * @param board - the Board.
      * @param player - the Player the AI plays for.
+     * @param depth - how many actions ahead the search looks. At least 1.
      * @return an array of Moves the AI wishes to perform. 
      */
-    public static Move[] move(Board board, Player player){
+    public static Move[] move(Board board, Player player, int depth){
         ArrayList<Move> moves = new ArrayList<>();
-        Move[] actions;
-        Board[] results;
+        ExpectiminimaxSearch search = new ExpectiminimaxSearch(null);
 
         // figure how to do the movement parts. Might want getWeakestLand and getStrongestLand methods for it. 
-        // implement AND-OR tree search for the best attack action
+        // the best attack action is found with an expectiminimax search over the AND-OR tree
+        Move attack = search.search(board, player, depth);
+        if(attack != null){ // null means that the best option is to not attack
+            moves.add(attack);
+        }
 
-        return (Move[]) moves.toArray();
+        return moves.toArray(new Move[0]);
     }
 
     /**
@@ -156,34 +160,18 @@ public class AIAttempt {
      * @return an array of Boards representing all results from performing the given Action on the given Board.
      */
     private static Board[] results(Board board, Move action){
-        ArrayList<Outcome> possibleOutcomes = ProbTable.getOutcomes(action.count, action.to.getTroopCount());   // all possible Outcomes from the given action
+        Outcome[] possibleOutcomes = ProbTable.getOutcomes(action.count, action.to.getTroopCount());   // all possible Outcomes from the given action
         ArrayList<Board> possibleBoards = new ArrayList<>();    // all states this action can lead to
         Board newBoard; // the new state after applying the current outcome
-        Land cFrom; // the from Land in newBoard
-        Land cTo;   // the to land in newBoard
 
         // goes through all possible outcomes and creates a new board where that outcome happend
         for(Outcome o : possibleOutcomes){
             newBoard = board.copy();
-            cFrom = newBoard.getLandByName(action.from.getName());
-            cTo = newBoard.getLandByName(action.to.getName());
-
-            // carries out the attack
-            cFrom.changeTroopCount(-o.attackersDying);
-            cTo.changeTroopCount(-o.defendersDying);
-
-            if(cTo.getTroopCount() == 0){  // attacker won and took the Land
-                cTo.changeController(action.player);    // sets attacker as controller of the Land
-
-                //moves one attacker over from the attacking Land
-                cFrom.changeTroopCount(-1);
-                cTo.changeTroopCount(1);
-            }
-
+            newBoard.applyOutcome(action, o);  // carries out the attack, and takes the Land if the attacker won it
             possibleBoards.add(newBoard);
         }
 
-        return (Board[]) possibleBoards.toArray();
+        return possibleBoards.toArray(new Board[0]);
     }
 
     /**
@@ -194,6 +182,7 @@ public class AIAttempt {
      * @return an evaluation of the gven Board from the given Players perspective
      */
     private static int evaluate(Board board, Player player){
-        return 0;
+        // scaled from the 0 to 1 of the search, so the evaluation can stay an int
+        return (int) Math.round(ExpectiminimaxSearch.evaluate(board, board.getPlayerIndex(player)) * 1000);
     }
 }
@@ -4,39 +4,80 @@ package players;
  *  This AI is what is actually instantiated in the game.
  */
 
+import containers.LatencyStatistics;
 import containers.Move;
 import containers.Reinforcement;
+import containers.SearchStatistics;
+import containers.TranspositionTable;
 import game.Board;
 
 public class CompAggressive extends AI{
 
     private int depth;
+    private long timeBudgetMillis;
+    private ExpectiminimaxSearch search;
+    private final LatencyStatistics latencies = new LatencyStatistics();
 
     public CompAggressive(int assignedNumber, int depth){
+        this(assignedNumber, depth, new TranspositionTable(16));
+    }
+
+    /*
+     *  The table may be shared with other AIs, fx by all the games of a batch, as it is safe to use from many threads
+     */
+    public CompAggressive(int assignedNumber, int depth, TranspositionTable table){
+        this(assignedNumber, depth, table, 0);
+    }
+
+    /*
+     *  An AI that searches as deep as it can within the time budget of each decision, but no deeper than the given depth
+     *  A budget of 0 always searches the full depth, however long that takes
+     */
+    public CompAggressive(int assignedNumber, int depth, TranspositionTable table, long timeBudgetMillis){
         super(assignedNumber);
+        if(depth < 1){
+            throw new IllegalArgumentException("The search depth must be at least 1, not " + depth);
+        }
         this.depth = depth;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.search = new ExpectiminimaxSearch(table);
     }
 
     @Override
     public Move move(Board board) {
-        Move move = null;
-        // Time to actually make an AI
-        // Finding the best move to make, in some order in this turn, does involve making your own move method, or using a list of helper methods from AI.
-        return move;
+        // Search for the best attack. The search returns null when ending the turn is the best option
+        long start = System.nanoTime();
+        Move attack = (timeBudgetMillis > 0 ? search.searchWithin(board, this, depth, timeBudgetMillis) : search.search(board, this, depth));
+        latencies.record(System.nanoTime() - start);
+        return attack;
+    }
+
+    /*
+     *  How long the decisions of this AI have taken so far
+     */
+    public LatencyStatistics getLatencies(){
+        return latencies;
+    }
+
+    /*
+     *  What the search of the last decision did, fx how deep it got within the time budget
+     */
+    public SearchStatistics getLastSearch(){
+        return search.getStatistics();
     }
 
     @Override
     public int evaluateBoard(Board board) {
-        int eval = 1;
-        // Time to actually make an AI
         // Since this AI is aggressive, it wants to use AI tools, helper methods, but it needs to declare its own final evaluation.
-        return eval;
+        // For now this is the evaluation of the search, scaled so it fits an int
+        return (int) Math.round(ExpectiminimaxSearch.evaluate(board, board.getPlayerIndex(this)) * 1000);
     }
 
     @Override
     public Reinforcement reinforce(Board board, int reinforceRemaining) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'reinforce'");
+        // Aggressive, so everything goes on the strongest land at the front, to attack from
+        int target = ExpectiminimaxSearch.reinforcementTarget(board, board.getPlayerIndex(this));
+        return new Reinforcement(board.getLand(target), reinforceRemaining);
     }
     
-}
\ No newline at end of file
+}
@@ -0,0 +1,261 @@
+package players;
+
+import containers.*;
+import game.*;
+import java.util.*;
+
+/**
+ * Finds the best chains of attacks for one army, where the army takes a land, moves in, and attacks on from there.
+ * This is how a real turn goes, but the search AIs only ever see one attack at a time.
+ *
+ * Along a chain, the planner keeps the probability of every troop count the army can have after each land,
+ * and moves it on with the exact battle outcomes of BattleTable, so a chain starts from the troop distribution its prefix ended with.
+ *
+ * The number of chains grows exponentially with their length, so they are not all followed. The planner is a beam search:
+ * chains are grown one land at a time, and of all the chains of one length, only the beam width best by the value function
+ * are grown further. Every chain made is still ranked for the result, so the best chains of each length are always found,
+ * but a long chain whose start looked poor can be missed. A wider beam misses less, and costs proportionally more.
+ * Chains less likely to succeed than a cutoff are dropped as well, as longer chains can only be less likely.
+ *
+ * A planner reuses its buffers between calls, so every thread needs its own.
+ */
+public class ConquestPlanner {
+
+    /*
+     *  How much a chain is worth, used to rank the chains. A higher value is better
+     *  The chain given is only valid during the call, so it must be copied to be kept
+     */
+    public interface ChainValue {
+        double value(Board board, ConquestChain chain);
+    }
+
+    /*
+     *  The number of lands the chain is expected to take, counting only a chain that takes them all
+     */
+    public static final ChainValue EXPECTED_LANDS = (board, chain) -> chain.probability * chain.length;
+
+    public static final int DEFAULT_BEAM_WIDTH = 256;
+
+    private final BattleTable battles;
+    private double minProbability = 0.01;
+    private int maxLength = Integer.MAX_VALUE;
+    private int beamWidth = DEFAULT_BEAM_WIDTH;
+
+    // The chains of the length being grown, and the ones grown from them. Kept between calls, along with their arrays
+    private Partial[] beam = new Partial[0];
+    private Partial[] grown = new Partial[0];
+
+    private long chainsFollowed;
+
+    /*
+     *  A chain while it is being grown, with the troop distribution of the army on its last land
+     */
+    private static final class Partial {
+        int[] lands;
+        int length;
+        double[] troops;
+        double probability;
+        double expectedTroopsLeft;
+        double value;
+    }
+
+    public ConquestPlanner(){
+        this(BattleTable.standard());
+    }
+
+    public ConquestPlanner(BattleTable battles){
+        this.battles = battles;
+    }
+
+    /*
+     *  Chains less likely than this to succeed are neither returned nor followed further. 0.01 by default
+     */
+    public void setMinProbability(double minProbability){
+        this.minProbability = minProbability;
+    }
+
+    /*
+     *  The most lands a chain may have. Unlimited by default, as the army running out ends every chain anyway
+     */
+    public void setMaxLength(int maxLength){
+        this.maxLength = maxLength;
+    }
+
+    /*
+     *  How many chains of each length are grown further. DEFAULT_BEAM_WIDTH by default
+     *  The work of a call grows with the beam width times the length of the chains, instead of with the number of all chains
+     */
+    public void setBeamWidth(int beamWidth){
+        if(beamWidth < 1){
+            throw new IllegalArgumentException("The beam must hold at least one chain");
+        }
+        this.beamWidth = beamWidth;
+    }
+
+    /*
+     *  The number of chains followed by the last call to plan, for seeing how much work it did
+     */
+    public long getChainsFollowed(){
+        return chainsFollowed;
+    }
+
+    /*
+     *  Plans with every troop on the land but the one that stays home
+     */
+    public ArrayList<ConquestChain> plan(Board board, Land from, int count, ChainValue valueFunction){
+        return plan(board, from.landID, board.getTroops(from.landID) - 1, count, valueFunction);
+    }
+
+    /**
+     * Finds the best chains of attacks starting from the given land.
+     * @param board - the board to plan on. It is not changed
+     * @param from - the land the army starts on
+     * @param army - the troops that attack, not counting the one that stays home. Above the cap of the battle table, the cap is used
+     * @param count - how many of the best chains to return
+     * @param valueFunction - ranks the chains
+     * @return up to count chains, the best first
+     */
+    public ArrayList<ConquestChain> plan(Board board, int from, int army, int count, ChainValue valueFunction){
+        chainsFollowed = 0;
+        ArrayList<ConquestChain> result = new ArrayList<>();
+        army = Math.min(army, battles.getMaxTroops());
+        if(army < 1 || count < 1){
+            return result;
+        }
+        int longest = Math.min(Math.min(army, maxLength), board.getBoardSize());
+        int mover = board.getOwner(from);
+        MapTopology topology = board.getTopology();
+
+        // The worst of the best chains so far is on top, so it is the one pushed out by a better one
+        PriorityQueue<ConquestChain> best = new PriorityQueue<>(count + 1, (a, b) -> Double.compare(a.value, b.value));
+        ConquestChain chain = new ConquestChain(from, null, 0);
+
+        // The empty chain, with the whole army on the land it starts from
+        beam = ensure(beam, 1);
+        Partial start = prepare(beam, 0, longest, army);
+        Arrays.fill(start.troops, 0, army + 1, 0.0);
+        start.troops[army] = 1;
+        start.length = 0;
+        int beamSize = 1;
+
+        for (int length = 0; length < longest && beamSize > 0; length++) {
+            int grownSize = 0;
+            for (int b = 0; b < beamSize; b++) {
+                Partial parent = beam[b];
+                int last = (parent.length == 0 ? from : parent.lands[parent.length - 1]);
+                int neighbourCount = topology.getNeighbourCount(last);
+                for (int i = 0; i < neighbourCount; i++) {
+                    int target = topology.getNeighbour(last, i);
+                    int defenders = board.getTroops(target);
+                    if(target == from || board.getOwner(target) == mover || defenders > battles.getMaxTroops() || contains(parent, target)){
+                        continue;
+                    }
+                    chainsFollowed++;
+                    grown = ensure(grown, grownSize + 1);
+                    Partial next = prepare(grown, grownSize, longest, army);
+                    if(!extend(parent, target, defenders, army, next)){
+                        continue;
+                    }
+                    chain.lands = next.lands;
+                    chain.length = next.length;
+                    chain.probability = next.probability;
+                    chain.expectedTroopsLeft = next.expectedTroopsLeft;
+                    next.value = valueFunction.value(board, chain);
+                    chain.value = next.value;
+                    if(best.size() < count){
+                        best.add(chain.copy());
+                    } else if(chain.value > best.peek().value){
+                        best.poll();
+                        best.add(chain.copy());
+                    }
+                    grownSize++;
+                }
+            }
+            // Only the best grown chains are grown further. The sort moves the objects, so the arrays stay with them
+            if(grownSize > beamWidth){
+                Arrays.sort(grown, 0, grownSize, (a, b) -> Double.compare(b.value, a.value));
+                grownSize = beamWidth;
+            }
+            Partial[] swap = beam;
+            beam = grown;
+            grown = swap;
+            beamSize = grownSize;
+        }
+
+        while(!best.isEmpty()){
+            result.add(best.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /*
+     *  Fills next with the parent chain plus the target, and the troop distribution after taking it
+     *  Returns false if the chain is too unlikely to keep
+     */
+    private boolean extend(Partial parent, int target, int defenders, int army, Partial next){
+        double[] current = parent.troops;
+        double[] after = next.troops;
+        Arrays.fill(after, 0, army + 1, 0.0);
+        double probability = 0;
+        double expectedTroops = 0;
+        for (int attackers = 1; attackers <= army; attackers++) {
+            double here = current[attackers];
+            if(here == 0){
+                continue;
+            }
+            double[] distribution = battles.getDistribution(attackers, defenders);
+            for (int left = 1; left <= attackers; left++) {
+                double p = here * distribution[left-1];
+                // The survivors move in, and one of them stays on the land when the army moves on
+                after[left-1] += p;
+                probability += p;
+                expectedTroops += p * left;
+            }
+        }
+        if(probability < minProbability){
+            return false;
+        }
+        System.arraycopy(parent.lands, 0, next.lands, 0, parent.length);
+        next.lands[parent.length] = target;
+        next.length = parent.length + 1;
+        next.probability = probability;
+        next.expectedTroopsLeft = expectedTroops / probability;
+        return true;
+    }
+
+    private static boolean contains(Partial chain, int land){
+        // Chains are no longer than the army, so a scan is quicker than any set
+        for (int i = 0; i < chain.length; i++) {
+            if(chain.lands[i] == land){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     *  The pool, or a larger copy of it if it has fewer than size places
+     */
+    private static Partial[] ensure(Partial[] pool, int size){
+        return (size <= pool.length ? pool : Arrays.copyOf(pool, Math.max(16, 2 * size)));
+    }
+
+    /*
+     *  The partial chain at the index of the pool, made or grown to fit chains of the given length and army
+     */
+    private static Partial prepare(Partial[] pool, int index, int longest, int army){
+        Partial partial = pool[index];
+        if(partial == null){
+            partial = new Partial();
+            pool[index] = partial;
+        }
+        if(partial.lands == null || partial.lands.length < longest){
+            partial.lands = new int[longest];
+        }
+        if(partial.troops == null || partial.troops.length < army + 1){
+            partial.troops = new double[army + 1];
+        }
+        return partial;
+    }
+}
@@ -0,0 +1,586 @@
+package players;
+
+import containers.*;
+import game.*;
+import java.util.*;
+
+/**
+ * The AND-OR tree search described in AIAttempt, as an expectiminimax search.
+ *
+ * Decision nodes are where a player chooses an action: attack a hostile neighbour
+ * from one of their lands with as many dice as it can, or end their turn.
+ * Chance nodes are the attacks, where each outcome from ProbTable happens with its probability.
+ * Ending the turn hands the board to the next player, who places their reinforcements and then
+ * gets a decision node of their own. The searching player maximizes, everyone else minimizes.
+ *
+ * Every action costs one depth, the dice do not. At depth 0 the board is evaluated,
+ * as the searching player's share of the lands and troops, which is always between 0 and 1.
+ *
+ * The tree is walked on a single copy of the board, applying and undoing every change.
+ * Decision nodes use alpha-beta pruning. Chance nodes use Star1 pruning, which stops
+ * as soon as the outcomes already searched decide that the node lies outside the window,
+ * and optionally Star2 probing, which first searches one action after each outcome to get cheap bounds.
+ * A transposition table, if given, lets the search reuse positions it has already seen.
+ * With pruning turned off, the full-width tree is searched, for comparing the two.
+ *
+ * searchWithin deepens the search one depth at a time until a time budget runs out, instead of searching to a fixed depth.
+ * The search that is running at the deadline is abandoned, and the action of the deepest finished one is taken,
+ * so a decision takes about as long on a huge board as on a small one, only with a shallower search.
+ */
+public class ExpectiminimaxSearch {
+
+    private static final double LOWEST_VALUE = 0.0;
+    private static final double HIGHEST_VALUE = 1.0;
+    private static final int MAX_OUTCOMES = 8;
+    private static final int CLOCK_INTERVAL = 256;  // decision nodes between looks at the clock, which must be a power of two
+
+    private final TranspositionTable table;
+    private boolean pruning = true;
+    private boolean probing = false;
+
+    private SearchStatistics statistics = new SearchStatistics();
+    private double bestValue;
+    private int rootPlayer;
+    private long perspectiveKey;
+    private long deadline;      // the System.nanoTime the search must stop at, or 0 to search to the end
+
+    // The attacks found at each ply, kept between searches so the search does not allocate
+    private MoveGenerator[] attacks = new MoveGenerator[0];
+    private MoveOrdering ordering = new MoveOrdering();
+    private double[][] lowerBounds = new double[0][];
+    private double[][] upperBounds = new double[0][];
+
+    /**
+     * @param table - the transposition table to use, or null to search without one.
+     *                The table may be shared with other searches, also on other threads.
+     */
+    public ExpectiminimaxSearch(TranspositionTable table){
+        this.table = table;
+    }
+
+    /*
+     *  Turns all pruning (alpha-beta, Star1, Star2 and the transposition table) on or off
+     */
+    public void setPruning(boolean pruning){
+        this.pruning = pruning;
+    }
+
+    /*
+     *  Turns Star2 probing of chance nodes on or off. It is off by default
+     *  Probing only pays for itself when the first action searched is usually the best one,
+     *  otherwise the probes are mostly work that the full search of the outcome does again
+     */
+    public void setProbing(boolean probing){
+        this.probing = probing;
+    }
+
+    /*
+     *  Sets the order actions are searched in. By default it is a new MoveOrdering()
+     *  An ordering with every heuristic off searches the attacks in the order they are generated, after the move from the table
+     */
+    public void setOrdering(MoveOrdering ordering){
+        this.ordering = ordering;
+    }
+
+    public SearchStatistics getStatistics(){
+        return statistics;
+    }
+
+    /*
+     *  The value of the best action found by the last search, between 0 and 1
+     */
+    public double getBestValue(){
+        return bestValue;
+    }
+
+    /**
+     * Searches for the best action for the given player on the board.
+     * The board itself is not changed.
+     * @param board - the Board to search from
+     * @param player - the Player to find an action for. The search assumes it is this player's turn
+     * @param depth - how many actions ahead to search, at least 1
+     * @return the best attack, using the Lands of the given board, or null if ending the turn is best
+     */
+    public Move search(Board board, Player player, int depth){
+        if(depth < 1){
+            // Choosing an action needs at least the action itself to be searched
+            throw new IllegalArgumentException("The search depth must be at least 1, not " + depth);
+        }
+        deadline = 0;
+        statistics = new SearchStatistics();
+        int bestIndex = searchRoot(board, player, depth);
+        return toMove(board, player, bestIndex, depth);
+    }
+
+    /**
+     * Searches depth 1, 2, 3 and so on for the best action, until the time budget runs out or the given depth is searched.
+     * The search that is running when the time runs out is stopped, and the best action of the deepest finished search is returned.
+     * A depth is not started when half the budget is gone, as every depth takes longer than all the ones before it together.
+     * Depth 1 is always searched to the end, so there is an action to return, however small the budget.
+     * The statistics are those of all the depths together, with the depth of the deepest finished one.
+     * @param board - the Board to search from
+     * @param player - the Player to find an action for. The search assumes it is this player's turn
+     * @param maxDepth - the deepest to search, if there is time
+     * @param timeBudgetMillis - how long the whole search may take
+     * @return the best attack, using the Lands of the given board, or null if ending the turn is best
+     */
+    public Move searchWithin(Board board, Player player, int maxDepth, long timeBudgetMillis){
+        long start = System.nanoTime();
+        long budget = timeBudgetMillis * 1_000_000L;
+        SearchStatistics total = new SearchStatistics();
+        int bestIndex = -1;
+        double value = 0;
+        int depth = 0;
+        for (int next = 1; next <= Math.max(1, maxDepth); next++) {
+            long elapsed = System.nanoTime() - start;
+            if(next > 1 && elapsed > budget / 2){
+                break;
+            }
+            deadline = (next == 1 ? 0 : start + budget);
+            statistics = new SearchStatistics();
+            try {
+                bestIndex = searchRoot(board, player, next);
+                value = bestValue;
+                depth = next;
+            } catch (SearchTimeout timeout) {
+                statistics.stop();
+                statistics.timeouts++;
+                break;
+            } finally {
+                total.add(statistics);
+            }
+        }
+        deadline = 0;
+        total.depth = depth;
+        statistics = total;
+        bestValue = value;
+        return toMove(board, player, bestIndex, depth);
+    }
+
+    /*
+     *  Searches the root of the tree to the given depth, and returns the index of the best action among the attacks at ply 0
+     */
+    private int searchRoot(Board board, Player player, int depth){
+        Board searchBoard = board.copy();
+        rootPlayer = searchBoard.getPlayerIndex(player);
+        if(searchBoard.getPlayerTurn() != rootPlayer+1){
+            searchBoard.setPlayerTurn(rootPlayer+1);
+        }
+        // The value of a position depends on who is searching, so that goes into the key as well
+        perspectiveKey = 0x9E3779B97F4A7C15L * (rootPlayer+1);
+        ensurePlies(depth+2);
+        ordering.newSearch(depth+2);
+        statistics.depth = depth;
+        statistics.start();
+
+        int attackCount = generateAttacks(searchBoard, rootPlayer, 0);
+        int bestIndex = attackCount;
+        double alpha = LOWEST_VALUE;
+        bestValue = -1;
+        statistics.decisionNodes++;
+        for (int i = 0; i <= attackCount; i++) {
+            double value = actionValue(searchBoard, depth, 0, i, attackCount, (pruning ? alpha : LOWEST_VALUE), HIGHEST_VALUE);
+            // Ties go to the action found first, which puts attacks ahead of ending the turn
+            if(value > bestValue){
+                bestValue = value;
+                bestIndex = i;
+            }
+            alpha = Math.max(alpha, value);
+        }
+        statistics.stop();
+        return (bestIndex == attackCount ? -1 : bestIndex);
+    }
+
+    /*
+     *  The attack with the given index at ply 0 as a Move on the given board, or null for ending the turn
+     */
+    private Move toMove(Board board, Player player, int bestIndex, int depth){
+        if(bestIndex == -1 || depth == 0){
+            return null;
+        }
+        int from = MoveGenerator.from(attacks[0].get(bestIndex));
+        int to = MoveGenerator.to(attacks[0].get(bestIndex));
+        return new Move(player, board.getLand(from), board.getLand(to), attackDice(board, from));
+    }
+
+    /*
+     *  The value of a decision node, where the player whose turn it is chooses an action
+     */
+    private double decision(Board board, int depth, int ply, double alpha, double beta){
+        statistics.decisionNodes++;
+        if(deadline != 0 && (statistics.decisionNodes & (CLOCK_INTERVAL-1)) == 0 && System.nanoTime() - deadline > 0){
+            // Nothing of the unfinished search is kept. The table only holds nodes that were searched to the end, so it stays sound
+            throw SearchTimeout.INSTANCE;
+        }
+        double evaluation = evaluate(board, rootPlayer);
+        if(depth <= 0 || evaluation == LOWEST_VALUE || evaluation == HIGHEST_VALUE){
+            // Out of depth, or someone has lost all their land
+            statistics.leafNodes++;
+            return evaluation;
+        }
+        long key = board.getHash() ^ perspectiveKey;
+        int tableMove = TranspositionTable.NO_MOVE;
+        if(pruning && table != null){
+            long entry = table.probe(key);
+            if(entry != TranspositionTable.NO_ENTRY){
+                tableMove = TranspositionTable.bestMove(entry);
+                if(TranspositionTable.depth(entry) >= depth){
+                    double value = TranspositionTable.value(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if(bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && value >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && value <= alpha)){
+                        statistics.tableHits++;
+                        return value;
+                    }
+                }
+            }
+        }
+
+        int mover = board.getPlayerTurn()-1;
+        boolean maximizing = (mover == rootPlayer);
+        int attackCount = generateAttacks(board, mover, ply);
+        int tableIndex = findTableMove(tableMove, ply, attackCount);
+        double alphaStart = alpha;
+        double betaStart = beta;
+        double best = (maximizing ? -1 : 2);
+        int bestIndex = -1;
+        // The move from the table goes first, then the other attacks, and ending the turn last
+        int[] order = ordering.order(board, ply, attacks[ply], attackCount, tableIndex);
+        statistics.orderedNodes++;
+        for (int k = 0; k <= attackCount; k++) {
+            int i = order[k];
+            double value = actionValue(board, depth, ply, i, attackCount, alpha, beta);
+            if(maximizing ? value > best : value < best){
+                best = value;
+                bestIndex = i;
+            }
+            if(pruning){
+                if(maximizing){
+                    alpha = Math.max(alpha, value);
+                } else {
+                    beta = Math.min(beta, value);
+                }
+                if(alpha >= beta){
+                    statistics.cutoffs++;
+                    if(i < attackCount){
+                        ordering.cutoff(ply, attacks[ply].get(i), depth);
+                    }
+                    break;
+                }
+            }
+        }
+
+        if(bestIndex == order[0]){
+            statistics.bestFirst++;
+        }
+
+        if(pruning && table != null){
+            int bound = TranspositionTable.BOUND_EXACT;
+            if(best <= alphaStart){
+                bound = TranspositionTable.BOUND_UPPER;
+            } else if(best >= betaStart){
+                bound = TranspositionTable.BOUND_LOWER;
+            }
+            table.store(key, (float) best, Math.min(depth, TranspositionTable.MAX_DEPTH), bound, tableMove(ply, bestIndex, attackCount));
+        }
+        return best;
+    }
+
+    /*
+     *  The value of taking the action with the given index at a decision node
+     *  Indices below attackCount are attacks, and attackCount itself is ending the turn
+     */
+    private double actionValue(Board board, int depth, int ply, int index, int attackCount, double alpha, double beta){
+        if(index < attackCount){
+            long attack = attacks[ply].get(index);
+            return chance(board, depth, ply, MoveGenerator.from(attack), MoveGenerator.to(attack), alpha, beta);
+        }
+        // End the turn, and let the next player place their reinforcements
+        int turn = board.getPlayerTurn();
+        int nextPlayer = board.nextPlayer()-1;
+        int target = reinforcementTarget(board, nextPlayer);
+        long undo = 0;
+        if(target != -1){
+            undo = board.applyReinforcement(target, board.countReinforcements(board.getPlayer(nextPlayer)));
+        }
+        double value = decision(board, depth-1, ply+1, alpha, beta);
+        if(target != -1){
+            board.undo(undo);
+        }
+        board.setPlayerTurn(turn);
+        return value;
+    }
+
+    /*
+     *  The value of a chance node, which is an attack from one land to another
+     */
+    private double chance(Board board, int depth, int ply, int from, int to, double alpha, double beta){
+        statistics.chanceNodes++;
+        int mover = board.getOwner(from);
+        Outcome[] outcomes = ProbTable.getOutcomes(attackDice(board, from), board.getTroops(to));
+        int outcomeCount = outcomes.length;
+
+        if(!pruning){
+            double sum = 0;
+            for (int i = 0; i < outcomeCount; i++) {
+                Outcome outcome = outcomes[i];
+                long undo = board.applyOutcome(from, to, mover, outcome.attackersDying, outcome.defendersDying);
+                sum += outcome.probability * decision(board, depth-1, ply+1, LOWEST_VALUE, HIGHEST_VALUE);
+                board.undo(undo);
+            }
+            return sum;
+        }
+
+        // After an attack, it is still the attacker's turn, so every outcome leads to a decision node of the same player.
+        // For the searching player these are max nodes, so any action searched after an outcome gives a lower bound on it.
+        // For everyone else it gives an upper bound.
+        boolean maximizing = (mover == rootPlayer);
+        double[] lower = lowerBounds[ply];
+        double[] upper = upperBounds[ply];
+        for (int i = 0; i < outcomeCount; i++) {
+            lower[i] = LOWEST_VALUE;
+            upper[i] = HIGHEST_VALUE;
+        }
+
+        // Star2: probe each outcome with one action, to see if the bounds alone are enough for a cutoff
+        if(probing && depth > 1){
+            double probedSum = 0;
+            double unprobed = 1;
+            for (int i = 0; i < outcomeCount; i++) {
+                Outcome outcome = outcomes[i];
+                double p = outcome.probability;
+                unprobed -= p;
+                long undo = board.applyOutcome(from, to, mover, outcome.attackersDying, outcome.defendersDying);
+                if(maximizing){
+                    double childBeta = (beta - probedSum - LOWEST_VALUE * unprobed) / p;
+                    double bound = probe(board, depth-1, ply+1, LOWEST_VALUE, Math.min(HIGHEST_VALUE, childBeta));
+                    board.undo(undo);
+                    if(Double.isNaN(bound)){
+                        bound = LOWEST_VALUE;
+                    }
+                    lower[i] = bound;
+                    probedSum += p * bound;
+                    if(bound >= childBeta){
+                        statistics.probeCutoffs++;
+                        return beta;
+                    }
+                } else {
+                    double childAlpha = (alpha - probedSum - HIGHEST_VALUE * unprobed) / p;
+                    double bound = probe(board, depth-1, ply+1, Math.max(LOWEST_VALUE, childAlpha), HIGHEST_VALUE);
+                    board.undo(undo);
+                    if(Double.isNaN(bound)){
+                        bound = HIGHEST_VALUE;
+                    }
+                    upper[i] = bound;
+                    probedSum += p * bound;
+                    if(bound <= childAlpha){
+                        statistics.probeCutoffs++;
+                        return alpha;
+                    }
+                }
+            }
+        }
+
+        // Star1: search each outcome fully, with a window narrowed by what the other outcomes can still add
+        double searchedSum = 0;
+        for (int i = 0; i < outcomeCount; i++) {
+            Outcome outcome = outcomes[i];
+            double p = outcome.probability;
+            double restLower = 0;
+            double restUpper = 0;
+            for (int j = i+1; j < outcomeCount; j++) {
+                restLower += outcomes[j].probability * lower[j];
+                restUpper += outcomes[j].probability * upper[j];
+            }
+            double childAlpha = (alpha - searchedSum - restUpper) / p;
+            double childBeta = (beta - searchedSum - restLower) / p;
+            if(childAlpha >= HIGHEST_VALUE){
+                // Even the best result for this outcome cannot lift the node above alpha
+                statistics.chanceCutoffs++;
+                return alpha;
+            }
+            if(childBeta <= LOWEST_VALUE){
+                statistics.chanceCutoffs++;
+                return beta;
+            }
+            long undo = board.applyOutcome(from, to, mover, outcome.attackersDying, outcome.defendersDying);
+            double value = decision(board, depth-1, ply+1, Math.max(LOWEST_VALUE, childAlpha), Math.min(HIGHEST_VALUE, childBeta));
+            board.undo(undo);
+            if(value <= childAlpha){
+                statistics.chanceCutoffs++;
+                return alpha;
+            }
+            if(value >= childBeta){
+                statistics.chanceCutoffs++;
+                return beta;
+            }
+            searchedSum += p * value;
+        }
+        return searchedSum;
+    }
+
+    /*
+     *  Searches only the first action of a decision node
+     *  For a max node this is a lower bound on its value, and for a min node an upper bound
+     *  Ending the turn means searching the whole turn of the next player, which is no cheap probe.
+     *  So if the table does not point at an action, and there is no attack to probe with, NaN is returned to say that nothing was learned
+     */
+    private double probe(Board board, int depth, int ply, double alpha, double beta){
+        statistics.decisionNodes++;
+        double evaluation = evaluate(board, rootPlayer);
+        if(depth <= 0 || evaluation == LOWEST_VALUE || evaluation == HIGHEST_VALUE){
+            statistics.leafNodes++;
+            return evaluation;
+        }
+        int mover = board.getPlayerTurn()-1;
+        int attackCount = generateAttacks(board, mover, ply);
+        int tableIndex = -1;
+        if(table != null){
+            long entry = table.probe(board.getHash() ^ perspectiveKey);
+            if(entry != TranspositionTable.NO_ENTRY){
+                tableIndex = findTableMove(TranspositionTable.bestMove(entry), ply, attackCount);
+            }
+        }
+        // The first action the full search would try, which is only ending the turn if the table says so, or there is no attack
+        int first = ordering.order(board, ply, attacks[ply], attackCount, tableIndex)[0];
+        if(first == attackCount && tableIndex != attackCount){
+            return Double.NaN;
+        }
+        return actionValue(board, depth, ply, first, attackCount, alpha, beta);
+    }
+
+
+// - - - - - - - - - - - - - - - - - - Helpers
+
+
+    /*
+     *  Finds all attacks the player can make, and stores them at the given ply
+     *  Every land with more than one troop can attack each hostile neighbour, with as many dice as it can
+     *  Only the frontier of the player can attack, so the rest of the map is never looked at
+     */
+    private int generateAttacks(Board board, int player, int ply){
+        attacks[ply].clear();
+        return attacks[ply].generateAttacks(board, player);
+    }
+
+    /*
+     *  Thrown from deep in the tree when the deadline has passed, to leave the whole search at once
+     *  The search works on its own copy of the board, so nothing has to be undone on the way out
+     */
+    private static final class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        private SearchTimeout(){
+            // One instance is shared by every search, so it keeps no stack trace that would only be true of the first
+            super(null, null, false, false);
+        }
+    }
+
+    /*
+     *  The index of the best move the table remembers among the attacks found at the ply, attackCount for ending the turn,
+     *  or -1 if the table remembers none, or an attack that is not there, which only a collision of hashes can cause
+     */
+    private int findTableMove(int tableMove, int ply, int attackCount){
+        if(tableMove == TranspositionTable.END_TURN){
+            return attackCount;
+        }
+        if(tableMove != TranspositionTable.NO_MOVE){
+            MoveGenerator found = attacks[ply];
+            for (int i = 0; i < attackCount; i++) {
+                long attack = found.get(i);
+                if(TranspositionTable.moveCode(MoveGenerator.from(attack), MoveGenerator.to(attack)) == tableMove){
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /*
+     *  The action with the given index at the ply, as the table stores it
+     */
+    private int tableMove(int ply, int index, int attackCount){
+        if(index == -1){
+            return TranspositionTable.NO_MOVE;
+        }
+        if(index == attackCount){
+            return TranspositionTable.END_TURN;
+        }
+        long attack = attacks[ply].get(index);
+        return TranspositionTable.moveCode(MoveGenerator.from(attack), MoveGenerator.to(attack));
+    }
+
+    private void ensurePlies(int plies){
+        if(attacks.length >= plies){
+            return;
+        }
+        int oldPlies = attacks.length;
+        attacks = Arrays.copyOf(attacks, plies);
+        lowerBounds = Arrays.copyOf(lowerBounds, plies);
+        upperBounds = Arrays.copyOf(upperBounds, plies);
+        for (int i = oldPlies; i < plies; i++) {
+            attacks[i] = new MoveGenerator();
+            attacks[i].setMostDiceOnly(true);
+            lowerBounds[i] = new double[MAX_OUTCOMES];
+            upperBounds[i] = new double[MAX_OUTCOMES];
+        }
+    }
+
+    /*
+     *  The number of dice an attack from the land uses. One troop must always stay behind
+     */
+    static int attackDice(Board board, int from){
+        return Math.min(3, board.getTroops(from)-1);
+    }
+
+    /*
+     *  The land a player places all their reinforcements on, when the search plays their turn for them
+     *  This is the land with the most troops that borders a hostile land, as that is where an attack is made from
+     *  Returns -1 if the player has no land at all
+     */
+    static int reinforcementTarget(Board board, int player){
+        // Ties go to the lowest id, so the target only depends on the board, not on the order of the frontier
+        int target = -1;
+        int frontierSize = board.getFrontierSize(player);
+        for (int f = 0; f < frontierSize; f++) {
+            int land = board.getFrontierLand(player, f);
+            if(target == -1 || board.getTroops(land) > board.getTroops(target)
+                || (board.getTroops(land) == board.getTroops(target) && land < target)){
+                target = land;
+            }
+        }
+        if(target != -1){
+            return target;
+        }
+        // No hostile land borders the player, so any land will do
+        for (int land = 0; land < board.getBoardSize(); land++) {
+            if(board.getOwner(land) == player && (target == -1 || board.getTroops(land) > board.getTroops(target))){
+                target = land;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Evaluates the board from the perspective of the given player.
+     * The value is the average of the player's share of all lands and their share of all troops.
+     * It is 0 if the player has no land left, and 1 if they own every land.
+     * The board keeps the totals up to date as it changes, so this is O(1).
+     * @param board - the Board to evaluate
+     * @param player - the index of the player in the board
+     * @return the value of the board for the player, between 0 and 1
+     */
+    public static double evaluate(Board board, int player){
+        int ownLands = board.getControlledLandsCount(player);
+        int landCount = board.getBoardSize();
+        if(ownLands == 0){
+            return LOWEST_VALUE;
+        }
+        if(ownLands == landCount){
+            return HIGHEST_VALUE;
+        }
+        return 0.5 * ownLands / landCount + 0.5 * board.getTotalTroops(player) / board.getTotalTroops();
+    }
+}
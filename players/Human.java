@@ -88,7 +88,7 @@ public class Human extends Player{
                 System.out.println("The enemy have " + targetLand.getTroopCount() + " troops.");
                 System.out.println("You can attack with at most " + Math.min(fromLand.getTroopCount()-1, 3) + " troops.");
                 for (int i = 0; i < 3; i++) {
-                    ArrayList<Outcome> outcomes = ProbTable.getOutcomes(i+1, Math.min(targetLand.getTroopCount(), 2));
+                    Outcome[] outcomes = ProbTable.getOutcomes(i+1, targetLand.getTroopCount());
                     for (Outcome outcome : outcomes) {
                         System.out.print("Attacking with " + (i+1) + " troops has a ");
                         outcome.printProbAsPercentage();
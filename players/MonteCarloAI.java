@@ -0,0 +1,419 @@
+package players;
+/*
+ *  An AI using Monte Carlo Tree Search.
+ *  Instead of searching every outcome of the dice, it plays out many random continuations, and keeps the attacks that did well.
+ */
+
+import containers.*;
+import game.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class MonteCarloAI extends AI{
+
+    private static final double EXPLORATION = 0.7;  // The UCB1 constant. Values are between 0 and 1, so this is lower than the usual square root of 2
+    private static final int MAX_ROLLOUT_ATTACKS = 8;   // The most attacks a player makes in one turn of a rollout
+
+    /*
+     *  The search threads of every Monte Carlo AI, so ending a game leaves no pool behind
+     *  A thread that has been idle for a minute stops, and the threads are daemons, so nothing has to shut the pool down
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "monte-carlo");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int threads;
+    private final long timeBudgetMillis;
+    private final int playoutBudget;
+    private final int rolloutTurns;
+    private final long seed;
+    private int decisionCount;
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+
+    /**
+     * @param assignedNumber - the number of this player
+     * @param threads - how many threads search at once. Each builds its own tree, and the trees are merged at the root
+     * @param timeBudgetMillis - how long each decision may take, used when playoutBudget is 0
+     * @param playoutBudget - how many playouts each decision gets in total, or 0 to use the time budget instead
+     * @param seed - the seed of the playouts. With a playout budget, the same seed gives the same decisions
+     */
+    public MonteCarloAI(int assignedNumber, int threads, long timeBudgetMillis, int playoutBudget, long seed){
+        super(assignedNumber);
+        if(playoutBudget < 0 || timeBudgetMillis < 0){
+            throw new IllegalArgumentException("A budget can not be negative");
+        }
+        if(playoutBudget == 0 && timeBudgetMillis == 0){
+            // Nothing would ever be played out, and every turn would end without an attack
+            throw new IllegalArgumentException("A Monte Carlo AI needs a playout budget or a time budget");
+        }
+        this.threads = Math.max(1, threads);
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.playoutBudget = playoutBudget;
+        this.rolloutTurns = 4;
+        this.seed = seed;
+    }
+
+    public MonteCarloAI(int assignedNumber, long timeBudgetMillis){
+        this(assignedNumber, Runtime.getRuntime().availableProcessors(), timeBudgetMillis, 0, System.nanoTime());
+    }
+
+    @Override
+    public Move move(Board board) {
+        int me = board.getPlayerIndex(this);
+        Board rootBoard = board.copy();
+        if(rootBoard.getPlayerTurn() != me+1){
+            rootBoard.setPlayerTurn(me+1);
+        }
+        if(countAttacks(rootBoard, me) == 0){
+            return null; // Nothing to decide
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        // Every decision, and every thread, gets its own stream of random numbers, so playout budgets are reproducible
+        long decisionSeed = seed + 0x9E3779B97F4A7C15L * (++decisionCount);
+        ArrayList<Tree> trees = new ArrayList<>();
+        if(threads == 1){
+            // No need for another thread, fx when a batch of games already keeps every core busy
+            int playouts = (playoutBudget > 0 ? playoutBudget : Integer.MAX_VALUE);
+            trees.add(new Tree(rootBoard, me, new SplittableRandom(decisionSeed)).run(playouts, deadline));
+        } else {
+            ArrayList<Future<Tree>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int playouts = (playoutBudget > 0 ? playoutBudget / threads + (t < playoutBudget % threads ? 1 : 0) : Integer.MAX_VALUE);
+                Tree tree = new Tree(rootBoard.copy(), me, new SplittableRandom(decisionSeed + t));
+                futures.add(EXECUTOR.submit(() -> tree.run(playouts, deadline)));
+            }
+            for (Future<Tree> future : futures) {
+                try {
+                    trees.add(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("A Monte Carlo search thread failed", e);
+                }
+            }
+        }
+
+        // Merge the trees at the root. Every tree found the same actions in the same order, as they start from the same board
+        Tree merged = null;
+        lastPlayouts = 0;
+        for (Tree tree : trees) {
+            lastPlayouts += tree.playouts;
+            if(merged == null){
+                merged = tree;
+            } else {
+                merged.root.merge(tree.root);
+            }
+        }
+        lastElapsedNanos = System.nanoTime() - start;
+
+        // The most visited action is the most robust choice
+        DecisionNode root = merged.root;
+        int best = root.attackCount;
+        long bestVisits = root.endVisits;
+        for (int i = 0; i < root.attackCount; i++) {
+            if(root.visits[i] > bestVisits){
+                bestVisits = root.visits[i];
+                best = i;
+            }
+        }
+        if(best == root.attackCount){
+            return null;
+        }
+        int from = root.from[best];
+        return new Move(this, board.getLand(from), board.getLand(root.to[best]), ExpectiminimaxSearch.attackDice(board, from));
+    }
+
+    @Override
+    public Reinforcement reinforce(Board board, int reinforceRemaining) {
+        // Everything goes on the strongest land at the front, to attack from
+        int target = ExpectiminimaxSearch.reinforcementTarget(board, board.getPlayerIndex(this));
+        return new Reinforcement(board.getLand(target), reinforceRemaining);
+    }
+
+    @Override
+    public int evaluateBoard(Board board) {
+        return (int) Math.round(ExpectiminimaxSearch.evaluate(board, board.getPlayerIndex(this)) * 1000);
+    }
+
+    /*
+     *  The number of playouts the last decision made, over all threads
+     */
+    public long getLastPlayouts(){
+        return lastPlayouts;
+    }
+
+    public double getLastPlayoutsPerSecond(){
+        return (lastElapsedNanos == 0 ? 0 : lastPlayouts * 1e9 / lastElapsedNanos);
+    }
+
+    private static int countAttacks(Board board, int player){
+        int count = 0;
+        for (int f = 0; f < board.getFrontierSize(player); f++) {
+            int land = board.getFrontierLand(player, f);
+            if(board.getTroops(land) > 1){
+                count += board.getHostileNeighbourCount(land);
+            }
+        }
+        return count;
+    }
+
+    /*
+     *  Picks one of the outcomes at random, each with its own probability
+     */
+    private static int sampleOutcome(Outcome[] outcomes, SplittableRandom random){
+        double roll = random.nextDouble();
+        for (int i = 0; i < outcomes.length-1; i++) {
+            roll -= outcomes[i].probability;
+            if(roll < 0){
+                return i;
+            }
+        }
+        return outcomes.length-1;
+    }
+
+
+// - - - - - - - - - - - - - - - - - - The tree of one thread
+
+
+    /*
+     *  The search tree of one thread. It covers the rest of this AI's turn.
+     *  Ending the turn, or reaching a new node, is followed by a rollout of a few turns, which is then evaluated
+     */
+    private class Tree {
+        final Board board;
+        final int me;
+        final SplittableRandom random;
+        final DecisionNode root;
+        long playouts;
+        // The changes made in the current iteration, undone in reverse when it is done
+        long[] undoStack = new long[64];
+        int undoCount;
+
+        Tree(Board board, int me, SplittableRandom random){
+            this.board = board;
+            this.me = me;
+            this.random = random;
+            this.root = new DecisionNode(board, me);
+        }
+
+        Tree run(int playoutLimit, long deadline){
+            ArrayList<DecisionNode> path = new ArrayList<>();
+            ArrayList<Integer> actions = new ArrayList<>();
+            while(playouts < playoutLimit && (playoutBudget > 0 || System.nanoTime() < deadline)){
+                path.clear();
+                actions.clear();
+                int turn = board.getPlayerTurn();
+                DecisionNode node = root;
+                double value;
+                while(true){
+                    int action = node.select();
+                    path.add(node);
+                    actions.add(action);
+                    if(action == node.attackCount){
+                        value = rollout(true);
+                        break;
+                    }
+                    // Let the dice decide how the attack went
+                    int from = node.from[action];
+                    ChanceNode chance = node.chance(action, board);
+                    int outcome = sampleOutcome(chance.outcomes, random);
+                    Outcome o = chance.outcomes[outcome];
+                    push(board.applyOutcome(from, node.to[action], me, o.attackersDying, o.defendersDying));
+                    DecisionNode child = chance.children[outcome];
+                    if(child == null){
+                        // A new node. Add it to the tree, and find its value with a rollout
+                        chance.children[outcome] = new DecisionNode(board, me);
+                        value = rollout(false);
+                        break;
+                    }
+                    node = child;
+                }
+                for (int i = 0; i < path.size(); i++) {
+                    path.get(i).update(actions.get(i), value);
+                }
+                while(undoCount > 0){
+                    board.undo(undoStack[--undoCount]);
+                }
+                board.setPlayerTurn(turn);
+                playouts++;
+            }
+            return this;
+        }
+
+        /*
+         *  Plays a few turns with a simple policy, and evaluates where that ends
+         *  If turnEnded is false, this AI first finishes its own turn with the same policy
+         */
+        double rollout(boolean turnEnded){
+            for (int turn = 0; turn < rolloutTurns; turn++) {
+                int player = board.getPlayerTurn()-1;
+                if(!(turn == 0 && turnEnded)){
+                    playTurn(player);
+                }
+                double evaluation = ExpectiminimaxSearch.evaluate(board, me);
+                if(evaluation == 0.0 || evaluation == 1.0){
+                    return evaluation;
+                }
+                // Next player, with their reinforcements
+                int next = board.nextPlayer()-1;
+                int target = ExpectiminimaxSearch.reinforcementTarget(board, next);
+                if(target != -1){
+                    push(board.applyReinforcement(target, board.countReinforcements(board.getPlayer(next))));
+                }
+            }
+            return ExpectiminimaxSearch.evaluate(board, me);
+        }
+
+        /*
+         *  The rollout policy: attack at random, but only where the attacker has at least as many troops to spare as the defender has
+         */
+        void playTurn(int player){
+            MapTopology topology = board.getTopology();
+            for (int attack = 0; attack < MAX_ROLLOUT_ATTACKS; attack++) {
+                // Pick uniformly among the good attacks, by reservoir sampling, so no list is needed
+                int chosenFrom = -1;
+                int chosenTo = -1;
+                int seen = 0;
+                for (int f = 0; f < board.getFrontierSize(player); f++) {
+                    int land = board.getFrontierLand(player, f);
+                    if(board.getTroops(land) < 2){
+                        continue;
+                    }
+                    for (int i = 0; i < topology.getNeighbourCount(land); i++) {
+                        int neighbour = topology.getNeighbour(land, i);
+                        if(board.getOwner(neighbour) != player && board.getTroops(land)-1 >= board.getTroops(neighbour)){
+                            seen++;
+                            if(random.nextInt(seen) == 0){
+                                chosenFrom = land;
+                                chosenTo = neighbour;
+                            }
+                        }
+                    }
+                }
+                if(chosenFrom == -1){
+                    return;
+                }
+                Outcome[] outcomes = ProbTable.getOutcomes(ExpectiminimaxSearch.attackDice(board, chosenFrom), board.getTroops(chosenTo));
+                Outcome o = outcomes[sampleOutcome(outcomes, random)];
+                push(board.applyOutcome(chosenFrom, chosenTo, player, o.attackersDying, o.defendersDying));
+            }
+        }
+
+        void push(long undo){
+            if(undoCount == undoStack.length){
+                undoStack = Arrays.copyOf(undoStack, undoCount*2);
+            }
+            undoStack[undoCount++] = undo;
+        }
+    }
+
+    /*
+     *  A node where this AI chooses to attack, or to end its turn
+     */
+    private static class DecisionNode {
+        final int attackCount;
+        final int[] from;
+        final int[] to;
+        final ChanceNode[] children;
+        final long[] visits;
+        final double[] valueSums;
+        long endVisits;
+        double endValueSum;
+        long totalVisits;
+
+        DecisionNode(Board board, int player){
+            attackCount = countAttacks(board, player);
+            from = new int[attackCount];
+            to = new int[attackCount];
+            MapTopology topology = board.getTopology();
+            int index = 0;
+            for (int f = 0; f < board.getFrontierSize(player); f++) {
+                int land = board.getFrontierLand(player, f);
+                if(board.getTroops(land) > 1){
+                    for (int i = 0; i < topology.getNeighbourCount(land); i++) {
+                        int neighbour = topology.getNeighbour(land, i);
+                        if(board.getOwner(neighbour) != player){
+                            from[index] = land;
+                            to[index] = neighbour;
+                            index++;
+                        }
+                    }
+                }
+            }
+            children = new ChanceNode[attackCount];
+            visits = new long[attackCount];
+            valueSums = new double[attackCount];
+        }
+
+        /*
+         *  Picks the action to follow with UCB1. Actions that were never tried go first
+         *  The index attackCount means ending the turn
+         */
+        int select(){
+            if(endVisits == 0){
+                return attackCount;
+            }
+            double logVisits = Math.log(totalVisits);
+            int best = attackCount;
+            double bestScore = endValueSum / endVisits + EXPLORATION * Math.sqrt(logVisits / endVisits);
+            for (int i = 0; i < attackCount; i++) {
+                if(visits[i] == 0){
+                    return i;
+                }
+                double score = valueSums[i] / visits[i] + EXPLORATION * Math.sqrt(logVisits / visits[i]);
+                if(score > bestScore){
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        ChanceNode chance(int action, Board board){
+            if(children[action] == null){
+                children[action] = new ChanceNode(ProbTable.getOutcomes(ExpectiminimaxSearch.attackDice(board, from[action]), board.getTroops(to[action])));
+            }
+            return children[action];
+        }
+
+        void update(int action, double value){
+            totalVisits++;
+            if(action == attackCount){
+                endVisits++;
+                endValueSum += value;
+            } else {
+                visits[action]++;
+                valueSums[action] += value;
+            }
+        }
+
+        /*
+         *  Adds the root statistics of another tree to this one
+         */
+        void merge(DecisionNode other){
+            totalVisits += other.totalVisits;
+            endVisits += other.endVisits;
+            endValueSum += other.endValueSum;
+            for (int i = 0; i < attackCount; i++) {
+                visits[i] += other.visits[i];
+                valueSums[i] += other.valueSums[i];
+            }
+        }
+    }
+
+    /*
+     *  A node where the dice decide the outcome of an attack
+     *  The outcomes are sampled with their probabilities, so the values below average out to the expected value
+     */
+    private static class ChanceNode {
+        final Outcome[] outcomes;
+        final DecisionNode[] children;
+
+        ChanceNode(Outcome[] outcomes){
+            this.outcomes = outcomes;
+            this.children = new DecisionNode[outcomes.length];
+        }
+    }
+}
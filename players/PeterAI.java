@@ -11,18 +11,52 @@ import game.*;
 public class PeterAI extends AI{
 
     private int depth;
+    private long timeBudgetMillis;
     private TurnPlan cTurnPlan;
+    private ExpectiminimaxSearch search;
+    private final LatencyStatistics latencies = new LatencyStatistics();
 
 
     public PeterAI(int assignedNumber, int depth){
+        this(assignedNumber, depth, new TranspositionTable(16));
+    }
+
+    /*
+     *  The table may be shared with other AIs, fx by all the games of a batch, as it is safe to use from many threads
+     */
+    public PeterAI(int assignedNumber, int depth, TranspositionTable table){
+        this(assignedNumber, depth, table, 0);
+    }
+
+    /*
+     *  An AI that plans each attack as deep as it can within the time budget, but no deeper than the given depth
+     *  A budget of 0 always searches the full depth, however long that takes
+     */
+    public PeterAI(int assignedNumber, int depth, TranspositionTable table, long timeBudgetMillis){
         super(assignedNumber);
+        if(depth < 1){
+            throw new IllegalArgumentException("The search depth must be at least 1, not " + depth);
+        }
         this.depth = depth;
+        this.timeBudgetMillis = timeBudgetMillis;
         this.cTurnPlan = new TurnPlan();
+        this.search = new ExpectiminimaxSearch(table);
+    }
+
+    /*
+     *  How long the planning of each attack has taken so far
+     */
+    public LatencyStatistics getLatencies(){
+        return latencies;
     }
 
     @Override
     public Move move(Board board) {
         Move move = null;
+        if(cTurnPlan.isPlanEmpty()){
+            // The dice have decided the last attack, so plan the next one from where we are now
+            planTurn(board, 0);
+        }
         if(cTurnPlan.isPlanEmpty()){
             // If at this point the plan is empty, that correlates to ending our turn
             return move;
@@ -34,7 +68,7 @@ public class PeterAI extends AI{
         }
         if(!(nextAction.currentBoard.equals(board))){
             // Our last move made has fucked up the timeline, replan!
-            planTurn(0);
+            planTurn(board, 0);
             if(cTurnPlan.isPlanEmpty()){ // Check if we just want to end our turn now
                 return move;
             }
@@ -65,7 +99,7 @@ public class PeterAI extends AI{
     public Reinforcement reinforce(Board board, int reinforceRemaining) {
         // If this is our first reinforcement, the TurnPlan should be empty
         if(cTurnPlan.isPlanEmpty()){
-            planTurn(reinforceRemaining);
+            planTurn(board, reinforceRemaining);
         }
         // Execute reinforcements from plan
         Action nextAction = cTurnPlan.nextAction();
@@ -78,14 +112,31 @@ public class PeterAI extends AI{
 
     /*
      *  This method sets the current turn plan
+     *  The plan is a stack, so the actions are added in the reverse order of how they are carried out
      */
-    private void planTurn(int reinforceRemaining){
+    private void planTurn(Board board, int reinforceRemaining){
+        Board plannedBoard = board.copy();
+        Reinforcement reinforcement = null;
         if(reinforceRemaining > 0){
             // We are in reinforcement phase
+            // Everything goes on the strongest land at the front, and the attack is planned from the board after that
+            int target = ExpectiminimaxSearch.reinforcementTarget(plannedBoard, plannedBoard.getPlayerIndex(this));
+            reinforcement = new Reinforcement(board.getLand(target), reinforceRemaining);
+            plannedBoard.applyReinforcement(target, reinforceRemaining);
         } else {
             // We are in movement phase. This is indicative of a plan failing
         }
         // Do AI magik
+        // Only the next attack can be planned, as the dice decide what the board looks like after it
+        long start = System.nanoTime();
+        Move attack = (timeBudgetMillis > 0 ? search.searchWithin(plannedBoard, this, depth, timeBudgetMillis) : search.search(plannedBoard, this, depth));
+        latencies.record(System.nanoTime() - start);
+        if(attack != null){
+            cTurnPlan.addAction(plannedBoard, new Move(this, board.getLand(attack.from.landID), board.getLand(attack.to.landID), attack.count));
+        }
+        if(reinforcement != null){
+            cTurnPlan.addAction(board.copy(), reinforcement);
+        }
     }
     
 }
\ No newline at end of file
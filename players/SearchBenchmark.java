@@ -0,0 +1,148 @@
+package players;
+
+import containers.*;
+import game.*;
+import java.util.*;
+
+/*
+ *  Measures the expectiminimax search with and without pruning, on the same positions
+ *  Run it with: java players.SearchBenchmark [maxDepth] [positions] [seed] [time budget ms]
+ *  The full-width and the pruned search must agree on the value of the best action, otherwise the pruning is broken
+ *  With a transposition table the values can differ slightly, as the table hands out results from deeper searches
+ *  The pruned searches are also run without move ordering, to see how many nodes the ordering saves at the same depth,
+ *  and at the deepest depth each heuristic of the ordering is tried on its own, on the same positions again
+ *  Last, the time bounded search is run on as many positions, to see how long its decisions take and how deep it gets
+ */
+public class SearchBenchmark {
+
+    public static void main(String[] args){
+        int maxDepth = (args.length > 0 ? Integer.parseInt(args[0]) : 4);
+        int positions = (args.length > 1 ? Integer.parseInt(args[1]) : 5);
+        long seed = (args.length > 2 ? Long.parseLong(args[2]) : 1);
+        long timeBudget = (args.length > 3 ? Long.parseLong(args[3]) : 100);
+
+        ArrayList<Player> players = new ArrayList<>();
+        players.add(new CompAggressive(1, maxDepth));
+        players.add(new CompAggressive(2, maxDepth));
+        Random random = new Random(seed);
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            SearchStatistics naiveTotal = new SearchStatistics();
+            SearchStatistics unorderedTotal = new SearchStatistics();
+            SearchStatistics unorderedTableTotal = new SearchStatistics();
+            SearchStatistics prunedTotal = new SearchStatistics();
+            SearchStatistics tableTotal = new SearchStatistics();
+            SearchStatistics probingTotal = new SearchStatistics();
+            for (int position = 0; position < positions; position++) {
+                Board board = randomPosition(players, random);
+                ExpectiminimaxSearch naive = new ExpectiminimaxSearch(null);
+                naive.setPruning(false);
+                naive.search(board, players.get(0), depth);
+                naiveTotal.add(naive.getStatistics());
+
+                ExpectiminimaxSearch unordered = new ExpectiminimaxSearch(null);
+                unordered.setOrdering(new MoveOrdering(false, false, false));
+                unordered.search(board, players.get(0), depth);
+                unorderedTotal.add(unordered.getStatistics());
+
+                ExpectiminimaxSearch pruned = new ExpectiminimaxSearch(null);
+                pruned.search(board, players.get(0), depth);
+                prunedTotal.add(pruned.getStatistics());
+
+                ExpectiminimaxSearch unorderedTable = new ExpectiminimaxSearch(new TranspositionTable(16));
+                unorderedTable.setOrdering(new MoveOrdering(false, false, false));
+                unorderedTable.search(board, players.get(0), depth);
+                unorderedTableTotal.add(unorderedTable.getStatistics());
+
+                ExpectiminimaxSearch withTable = new ExpectiminimaxSearch(new TranspositionTable(16));
+                withTable.search(board, players.get(0), depth);
+                tableTotal.add(withTable.getStatistics());
+
+                ExpectiminimaxSearch withProbing = new ExpectiminimaxSearch(new TranspositionTable(16));
+                withProbing.setProbing(true);
+                withProbing.search(board, players.get(0), depth);
+                probingTotal.add(withProbing.getStatistics());
+
+                if(Math.abs(naive.getBestValue() - pruned.getBestValue()) > 1e-4){
+                    System.out.println("Warning: the searches disagree on position " + position + " at depth " + depth
+                        + ": " + naive.getBestValue() + " against " + pruned.getBestValue());
+                }
+                if(Math.abs(unordered.getBestValue() - pruned.getBestValue()) > 1e-4){
+                    System.out.println("Warning: the move ordering changes the value of position " + position + " at depth " + depth
+                        + ": " + unordered.getBestValue() + " against " + pruned.getBestValue());
+                }
+            }
+            naiveTotal.depth = depth;
+            unorderedTotal.depth = depth;
+            unorderedTableTotal.depth = depth;
+            prunedTotal.depth = depth;
+            tableTotal.depth = depth;
+            probingTotal.depth = depth;
+            System.out.println("Full width:   " + naiveTotal);
+            System.out.println("Unordered:    " + unorderedTotal);
+            System.out.println("Pruned:       " + prunedTotal);
+            System.out.println("Unordered+table: " + unorderedTableTotal);
+            System.out.println("Pruned+table: " + tableTotal);
+            System.out.println("With Star2:   " + probingTotal);
+            System.out.println(String.format("Pruned searched %.1fx fewer nodes in %.1fx less time, with the table %.1fx fewer nodes in %.1fx less time%n",
+                (double) naiveTotal.getNodes() / Math.max(1, prunedTotal.getNodes()),
+                (double) naiveTotal.getElapsedNanos() / Math.max(1, prunedTotal.getElapsedNanos()),
+                (double) naiveTotal.getNodes() / Math.max(1, tableTotal.getNodes()),
+                (double) naiveTotal.getElapsedNanos() / Math.max(1, tableTotal.getElapsedNanos())));
+            System.out.println(String.format("Move ordering searched %d nodes against %d unordered, and %d against %d with the table%n",
+                prunedTotal.getNodes(), unorderedTotal.getNodes(), tableTotal.getNodes(), unorderedTableTotal.getNodes()));
+        }
+
+        String[] orderingNames = {"None", "Killers", "History", "Static score", "All"};
+        boolean[][] orderings = {{false, false, false}, {true, false, false}, {false, true, false}, {false, false, true}, {true, true, true}};
+        for (int o = 0; o < orderings.length; o++) {
+            Random again = new Random(seed);
+            SearchStatistics orderingTotal = new SearchStatistics();
+            for (int position = 0; position < positions; position++) {
+                Board board = randomPosition(players, again);
+                ExpectiminimaxSearch ordered = new ExpectiminimaxSearch(new TranspositionTable(16));
+                ordered.setOrdering(new MoveOrdering(orderings[o][0], orderings[o][1], orderings[o][2]));
+                ordered.search(board, players.get(0), maxDepth);
+                orderingTotal.add(ordered.getStatistics());
+            }
+            System.out.println(String.format("Ordering by %-12s with the table at depth %d: %d nodes, best action first in %.1f%% of nodes",
+                orderingNames[o] + ",", maxDepth, orderingTotal.getNodes(), 100 * orderingTotal.getBestFirstRate()));
+        }
+        System.out.println();
+
+        // Each position gets a table of its own, like a new game would
+        LatencyStatistics latencies = new LatencyStatistics();
+        SearchStatistics boundedTotal = new SearchStatistics();
+        int shallowest = Integer.MAX_VALUE;
+        int deepest = 0;
+        long depthSum = 0;
+        int boundedPositions = Math.max(positions, 100);
+        for (int position = 0; position < boundedPositions; position++) {
+            Board board = randomPosition(players, random);
+            ExpectiminimaxSearch bounded = new ExpectiminimaxSearch(new TranspositionTable(16));
+            long start = System.nanoTime();
+            bounded.searchWithin(board, players.get(0), 64, timeBudget);
+            latencies.record(System.nanoTime() - start);
+            int depth = bounded.getStatistics().depth;
+            shallowest = Math.min(shallowest, depth);
+            deepest = Math.max(deepest, depth);
+            depthSum += depth;
+            boundedTotal.add(bounded.getStatistics());
+        }
+        System.out.println("Time bounded at " + timeBudget + " ms: " + latencies);
+        System.out.println(String.format("Depth reached: %d to %d, %.1f on average. %d of %d searches stopped at the deadline, at %.0f nodes/s",
+            shallowest, deepest, (double) depthSum / boundedPositions, boundedTotal.timeouts, boundedPositions, boundedTotal.getNodesPerSecond()));
+    }
+
+    /*
+     *  The premade board, with a few random troops spread over every land, and the first player to move
+     */
+    private static Board randomPosition(ArrayList<Player> players, Random random){
+        Board board = new Board(players, 2);
+        for (int land = 0; land < board.getBoardSize(); land++) {
+            board.changeTroopCount(land, random.nextInt(4));
+        }
+        board.nextPlayer();
+        return board;
+    }
+}